@@ -0,0 +1,155 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Address encoding and decoding, in ns per address, cycling through a set of random addresses. The legacy benchmarks
+ * run a copy of the byte at a time long division that {@link Base58} used before the 25 byte fast path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Base58Benchmark {
+    private static final int COUNT = 256;
+    private static final int[] INDEXES = new int[128];
+
+    static {
+        for (int i = 0; i < Base58.ALPHABET.length; i++)
+            INDEXES[Base58.ALPHABET[i]] = i;
+    }
+
+    private final Address[] addresses = new Address[COUNT];
+    private final String[] encoded = new String[COUNT];
+    private final byte[][] raw = new byte[COUNT][];
+    private int next;
+
+    @Setup
+    public void setUp() throws AddressFormatException {
+        Random random = new Random(13);
+        NetworkParameters params = new NetworkParameters();
+        for (int i = 0; i < COUNT; i++) {
+            byte[] hash160 = new byte[Address.LENGTH];
+            random.nextBytes(hash160);
+            addresses[i] = new Address(params, hash160);
+            encoded[i] = addresses[i].toString();
+            raw[i] = Base58.decode(encoded[i]);
+            if (!legacyEncode(raw[i]).equals(encoded[i]) || !Arrays.equals(legacyDecode(encoded[i]), raw[i]))
+                throw new IllegalStateException("legacy code disagrees on " + encoded[i]);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (COUNT - 1);
+    }
+
+    @Benchmark
+    public String addressToString() {
+        return addresses[next()].toString();
+    }
+
+    @Benchmark
+    public Address addressFromString() throws AddressFormatException {
+        return new Address(encoded[next()]);
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base58.encode(raw[next()]);
+    }
+
+    @Benchmark
+    public byte[] decode() throws AddressFormatException {
+        return Base58.decode(encoded[next()]);
+    }
+
+    @Benchmark
+    public String legacyEncode() {
+        return legacyEncode(raw[next()]);
+    }
+
+    @Benchmark
+    public byte[] legacyDecode() {
+        return legacyDecode(encoded[next()]);
+    }
+
+    private static String legacyEncode(byte[] input) {
+        input = input.clone();
+        int zeroCount = 0;
+        while (zeroCount < input.length && input[zeroCount] == 0)
+            ++zeroCount;
+        byte[] temp = new byte[input.length * 2];
+        int j = temp.length;
+        int startAt = zeroCount;
+        while (startAt < input.length) {
+            byte mod = divmod58(input, startAt);
+            if (input[startAt] == 0)
+                ++startAt;
+            temp[--j] = (byte) Base58.ALPHABET[mod];
+        }
+        while (j < temp.length && temp[j] == Base58.ALPHABET[0])
+            ++j;
+        while (--zeroCount >= 0)
+            temp[--j] = (byte) Base58.ALPHABET[0];
+        return new String(temp, j, temp.length - j, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] legacyDecode(String input) {
+        byte[] input58 = new byte[input.length()];
+        for (int i = 0; i < input.length(); ++i)
+            input58[i] = (byte) INDEXES[input.charAt(i)];
+        int zeroCount = 0;
+        while (zeroCount < input58.length && input58[zeroCount] == 0)
+            ++zeroCount;
+        byte[] temp = new byte[input.length()];
+        int j = temp.length;
+        int startAt = zeroCount;
+        while (startAt < input58.length) {
+            byte mod = divmod256(input58, startAt);
+            if (input58[startAt] == 0)
+                ++startAt;
+            temp[--j] = mod;
+        }
+        while (j < temp.length && temp[j] == 0)
+            ++j;
+        byte[] out = new byte[temp.length - (j - zeroCount)];
+        System.arraycopy(temp, j - zeroCount, out, 0, out.length);
+        return out;
+    }
+
+    private static byte divmod58(byte[] number, int startAt) {
+        int remainder = 0;
+        for (int i = startAt; i < number.length; i++) {
+            int temp = remainder * 256 + (number[i] & 0xFF);
+            number[i] = (byte) (temp / 58);
+            remainder = temp % 58;
+        }
+        return (byte) remainder;
+    }
+
+    private static byte divmod256(byte[] number58, int startAt) {
+        int remainder = 0;
+        for (int i = startAt; i < number58.length; i++) {
+            int temp = remainder * 58 + (number58[i] & 0xFF);
+            number58[i] = (byte) (temp / 256);
+            remainder = temp % 256;
+        }
+        return (byte) remainder;
+    }
+}
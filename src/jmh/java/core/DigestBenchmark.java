@@ -0,0 +1,70 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Double SHA-256 of a 25 byte address payload, the hash behind every Base58Check decode, on every available processor
+ * at once. {@link #synchronizedDigest()} is the old Utils code, one MessageDigest shared under a lock, which stays at
+ * the single thread rate however many threads run. Pass {@code -t 1} to get the single thread rate for comparison.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Thread)
+public class DigestBenchmark {
+    private static final MessageDigest shared;
+
+    static {
+        try {
+            shared = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);  // Cannot happen.
+        }
+    }
+
+    private final byte[] payload = new byte[25];
+    private final byte[] out = new byte[32];
+
+    @Setup
+    public void setUp() {
+        new Random(9).nextBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] synchronizedDigest() {
+        synchronized (shared) {
+            shared.reset();
+            shared.update(payload, 0, payload.length);
+            return shared.digest(shared.digest());
+        }
+    }
+
+    @Benchmark
+    public byte[] doubleDigest() {
+        return Utils.doubleDigest(payload, 0, payload.length);
+    }
+
+    @Benchmark
+    public byte[] doubleDigestIntoBuffer() {
+        Utils.doubleDigest(payload, 0, payload.length, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,73 @@
+package core;
+
+import neo.Helper;
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signatures per second. {@link #genericSigner()} is what {@link ECKey#sign(Sha256Hash)} used to do: a new
+ * {@link ECDSASigner} on the generic secp256r1 curve for every signature, so k*G is a full variable base multiply.
+ * The other benchmarks go through the shared comb table for G.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignBenchmark {
+    private static final BigInteger PRIV =
+            new BigInteger("c9afa9d845ba75166b5c215767b1d6934e50c3db36e89b127b8a622b120f6721", 16);
+
+    private ECKey key;
+    private Sha256Hash hash;
+    private ECPrivateKeyParameters genericKey;
+
+    @Setup
+    public void setUp() {
+        key = new ECKey(PRIV, null, true);
+        hash = Sha256Hash.create("sample".getBytes());
+        X9ECParameters params = SECNamedCurves.getByName("secp256r1");
+        ECDomainParameters domain = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(),
+                params.getH());
+        genericKey = new ECPrivateKeyParameters(PRIV, domain);
+    }
+
+    @Benchmark
+    public BigInteger[] genericSigner() {
+        ECDSASigner signer = new ECDSASigner();
+        signer.init(true, genericKey);
+        return signer.generateSignature(hash.getBytes());
+    }
+
+    @Benchmark
+    public ECKey.ECDSASignature sign() {
+        return key.sign(hash);
+    }
+
+    @Benchmark
+    public byte[] helperSign() {
+        return Helper.sign(hash, key);
+    }
+
+    @Benchmark
+    public byte[] publicKeyFromPrivate() {
+        return ECKey.publicKeyFromPrivate(PRIV, true);
+    }
+}
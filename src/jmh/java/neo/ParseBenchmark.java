@@ -0,0 +1,93 @@
+package neo;
+
+import core.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactions parsed per microsecond, one thread. {@link Transaction#deserialize(ByteArrayInputStream)} reads only the
+ * unsigned part of each transaction, while {@link Transaction#parse(ByteBuffer)} reads the witnesses too. The buffers
+ * hold {@value #COPIES} copies back to back and are rewound when they run out, as a reconciliation job would walk a
+ * mapped file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+    private static final int COPIES = 1000;
+
+    // A signed NEO transfer (one input, two outputs) and a signed NEP-5 transfer invocation, one witness each.
+    private static final String CONTRACT = "8001000130a85ceb47b78759f741658f59fa5de9aa02027713d6e24aa2c90c5cfc650fb8"
+            + "0000029b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc500e1f5050000000059d2cef5a70f5915"
+            + "16cb5888de225d9b4e8edc5e9b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc50003164e0200"
+            + "00006bc68ea188bf198f4a4dd8aedc0ffd0f28677fad014140a461104239691b42f0ae49247fdfc367e0aad84d86ddbe2dfd0e"
+            + "2ad883ff63eee99aa66e4f8263e50d232e3d0e310603062e523fbbc78ae34efaf67ef1c245bf2321027a6b334edede8ff1db38"
+            + "641f4e2d3907733cee19c373ae0fee5d1304ef68d39eac";
+    private static final String INVOCATION = "d1014d146bc68ea188bf198f4a4dd8aedc0ffd0f28677fad1459d2cef5a70f591516cb"
+            + "5888de225d9b4e8edc5e0405f5e100087472616e7366657267b8b78b3a2a453c08f0ddedbdcd62038aaeca8ac800e1f50500"
+            + "00000000013b0fa0e277176474a03cc2a8f5d4a9ddd9209969a0ffc5ff4c16e8ae77d633d2000001e72d286979ee6cb1b7e6"
+            + "5dfddfb2e384100b8d148e7758de42e4168b71792c6000e9a435000000006bc68ea188bf198f4a4dd8aedc0ffd0f28677fad"
+            + "014140a133edf16833aa822dcc38735f101d477dd8ffca67b27c42d42b8f6d4926906e22afabe4a660cbe95823bfe9ecad20a3"
+            + "c924f481888783f31744c86c4f931fbb2321027a6b334edede8ff1db38641f4e2d3907733cee19c373ae0fee5d1304ef68d39e"
+            + "ac";
+
+    @Param({"contract", "invocation"})
+    public String type;
+
+    private byte[] raw;
+    private ByteBuffer heap;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setUp() {
+        raw = Utils.hexStringToBytes("contract".equals(type) ? CONTRACT : INVOCATION);
+        heap = ByteBuffer.allocate(raw.length * COPIES);
+        direct = ByteBuffer.allocateDirect(raw.length * COPIES);
+        for (int i = 0; i < COPIES; i++) {
+            heap.put(raw);
+            direct.put(raw);
+        }
+        heap.flip();
+        direct.flip();
+        if (!Arrays.equals(Transaction.parse(heap.duplicate()).getRawData(), raw))
+            throw new IllegalStateException("sample " + type + " does not round-trip");
+    }
+
+    @Benchmark
+    public Transaction deserialize() {
+        Transaction tx = new Transaction();
+        tx.deserialize(new ByteArrayInputStream(raw));
+        return tx;
+    }
+
+    @Benchmark
+    public Transaction parseHeap() {
+        if (!heap.hasRemaining())
+            heap.rewind();
+        return Transaction.parse(heap);
+    }
+
+    @Benchmark
+    public Transaction parseDirect() {
+        if (!direct.hasRemaining())
+            direct.rewind();
+        return Transaction.parse(direct);
+    }
+}
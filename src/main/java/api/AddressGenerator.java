@@ -0,0 +1,176 @@
+package api;
+
+import core.Address;
+import core.ECKey;
+import core.NetworkParameters;
+import core.UInt160;
+import neo.Helper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>Generates deposit addresses in bulk. Worker threads create keys in batches with {@link ECKey#createBatch(int)},
+ * derive each key's verification script hash and address, and hand the batches to the thread that called
+ * {@link #generate(long, Sink)}, which passes every record to the sink in turn. The sink therefore needs no
+ * locking.</p>
+ *
+ * <p>At most {@code queuedBatches} finished batches wait for the sink at any time. A slow sink makes the workers wait,
+ * so memory use stays bounded however many addresses are asked for.</p>
+ *
+ * <p>Every key is drawn independently from the secure random source. Deriving a batch from one random key plus small
+ * offsets would save a little more point arithmetic, but then leaking any one private key would reveal them all.</p>
+ */
+public class AddressGenerator {
+    /** One generated address together with the key that controls it. */
+    public static final class Record {
+        private final ECKey key;
+        private final UInt160 scriptHash;
+        private final String address;
+
+        Record(ECKey key, UInt160 scriptHash, String address) {
+            this.key = key;
+            this.scriptHash = scriptHash;
+            this.address = address;
+        }
+
+        /** The key, holding the private key and the 33 byte compressed public key. */
+        public ECKey getKey() {
+            return key;
+        }
+
+        /** The hash160 of the key's verification script. */
+        public UInt160 getScriptHash() {
+            return scriptHash;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+    }
+
+    /** Receives generated records, always on the thread that called {@link #generate(long, Sink)}. */
+    public interface Sink {
+        void accept(Record record) throws Exception;
+    }
+
+    private static final Record[] END = new Record[0];
+
+    private final int threads;
+    private final int batchSize;
+    private final int queuedBatches;
+
+    /**
+     * Creates a generator with one worker per available processor, batches of 256 and up to 4 batches per worker
+     * queued.
+     */
+    public AddressGenerator() {
+        this(Runtime.getRuntime().availableProcessors(), 256, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads       number of worker threads.
+     * @param batchSize     keys per batch, sharing one affine conversion.
+     * @param queuedBatches the most finished batches waiting for the sink.
+     */
+    public AddressGenerator(int threads, int batchSize, int queuedBatches) {
+        checkArgument(threads > 0, "threads must be positive");
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        checkArgument(queuedBatches > 0, "queuedBatches must be positive");
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queuedBatches = queuedBatches;
+    }
+
+    /**
+     * Generates {@code count} new addresses and passes each to {@code sink}, returning once all have been accepted.
+     * If a worker or the sink throws, generation stops and the exception is rethrown here.
+     */
+    public void generate(long count, Sink sink) throws Exception {
+        checkArgument(count >= 0, "count must not be negative");
+        final AtomicLong remaining = new AtomicLong(count);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final BlockingQueue<Record[]> queue = new ArrayBlockingQueue<Record[]>(queuedBatches);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "AddressGenerator worker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            try {
+                                int n;
+                                while ((n = claim(remaining)) > 0)
+                                    queue.put(createBatch(n));
+                            } catch (InterruptedException e) {
+                                throw e;
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                                remaining.set(0);
+                            }
+                            queue.put(END);
+                        } catch (InterruptedException e) {
+                            // Cancelled by generate(), which is no longer reading the queue.
+                        }
+                    }
+                });
+            }
+
+            int running = threads;
+            while (running > 0) {
+                Record[] batch = queue.take();
+                if (batch == END) {
+                    running--;
+                    continue;
+                }
+                for (Record record : batch)
+                    sink.accept(record);
+            }
+            Throwable t = failure.get();
+            if (t instanceof Exception)
+                throw (Exception) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            if (t != null)
+                throw new RuntimeException(t);
+        } finally {
+            remaining.set(0);
+            executor.shutdownNow();
+        }
+    }
+
+    // Takes up to batchSize keys from the outstanding count, or returns 0 once nothing is left.
+    private int claim(AtomicLong remaining) {
+        while (true) {
+            long left = remaining.get();
+            if (left <= 0)
+                return 0;
+            int n = (int) Math.min(batchSize, left);
+            if (remaining.compareAndSet(left, left - n))
+                return n;
+        }
+    }
+
+    private static Record[] createBatch(int count) {
+        NetworkParameters params = new NetworkParameters();
+        ECKey[] keys = ECKey.createBatch(count);
+        Record[] records = new Record[count];
+        for (int i = 0; i < count; i++) {
+            byte[] hash = Helper.getScriptHashFromPublicKey(keys[i].getPubKey());
+            records[i] = new Record(keys[i], UInt160.fromBytes(hash), new Address(params, hash).toString());
+        }
+        return records;
+    }
+}
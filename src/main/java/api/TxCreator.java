@@ -9,6 +9,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class TxCreator {
+    private static volatile NoncePool noncePool;
+
+    /**
+     * Makes every transaction created here sign with nonces from the given pool, see {@link ECKey#setNoncePool}.
+     * Transactions signed this way are no longer reproducible. Pass null to go back to RFC 6979 nonces.
+     */
+    public static void setNoncePool(NoncePool pool) {
+        noncePool = pool;
+    }
+
     public static String createContractTransaction(CreateSignParams params) {
         Transaction tx = new Transaction();
         tx.setTxtype(TransactionType.ContractTransaction);
@@ -28,9 +38,11 @@ public class TxCreator {
             TransactionInput input = new TransactionInput();
             inputs.add(input);
             Utxo utxo = utxos.get(i);
-            byte[] hash = Utils.hexStringToBytes(utxo.getHash());
-            hash = Utils.reverseBytes(hash);
-            input.setHash(hash);
+            try {
+                input.setHash(UInt256.parse(utxo.getHash()));
+            } catch (IllegalArgumentException e) {
+                return "";
+            }
 
             input.setIndex(utxo.getN());
             sum += utxo.getValue();
@@ -48,13 +60,20 @@ public class TxCreator {
         String assetId = params.getAssetId();
         TransactionOutput output = new TransactionOutput();
         outputs.add(output);
-        byte[] vAssetId = Utils.hexStringToBytes(assetId);
-        vAssetId = Utils.reverseBytes(vAssetId);
+        UInt256 vAssetId;
+        try {
+            vAssetId = UInt256.parse(assetId);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
         output.setAssetId(vAssetId);
         Fixed8 gasvalue = new Fixed8();
         gasvalue.setValue(value);
         output.setValue(gasvalue);
-        byte[] pubkeyhash = Helper.getPublicKeyHashFromAddress(toAddress);
+        UInt160 pubkeyhash = AddressCache.getScriptHash(toAddress);
+        if(pubkeyhash == null) {
+            return "";
+        }
         output.setToAddress(pubkeyhash);
 
         String fromAddress = params.getFrom();
@@ -67,11 +86,13 @@ public class TxCreator {
             Fixed8 leftValue = new Fixed8();
             leftValue.setValue(left);
             output2.setValue(leftValue);
-            byte[] pkh = Helper.getPublicKeyHashFromAddress(fromAddress);
+            UInt160 pkh = AddressCache.getScriptHash(fromAddress);
+            if(pkh == null) {
+                return "";
+            }
             output2.setToAddress(pkh);
         }
 
-        byte[] unsignedData = tx.getMessage();
         String privKey = params.getPriKey();
         DumpedPrivateKey dumpedPrivateKey = null;
 
@@ -86,10 +107,12 @@ public class TxCreator {
         }
 
         ECKey ecKey = dumpedPrivateKey.getKey();
+        ecKey.setDeterministicSigning(true);
+        ecKey.setNoncePool(noncePool);
 
-        Sha256Hash sha256Hash = Sha256Hash.create(unsignedData);
+        Sha256Hash sha256Hash = tx.getMessageHash();
 
-        byte[] signature = Helper.sign(sha256Hash, ecKey);
+        byte[] signature = Helper.getSignatureBackend().sign(sha256Hash, ecKey);
         byte[] pub = ecKey.getPubKey();
         tx.addWitness(signature, pub, fromAddress);
 
@@ -97,7 +120,7 @@ public class TxCreator {
         ECPrivateKey ecPrivateKey = Helper.getPrivateKey(ecKey);
         byte[] signData = null;
         try {
-            signData = Helper.signature(unsignedData, ecPrivateKey);
+            signData = Helper.signature(tx.getMessage(), ecPrivateKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -108,10 +131,7 @@ public class TxCreator {
         tx.addWitness(signData, pub, compressed, fromAddress);
         */
 
-        byte[] rawData = tx.getRawData();
-        String raw = Utils.bytesToHexString(rawData);
-
-        return raw;
+        return toRawHex(tx);
     }
 
     public static String createInvocationTransaction(CreateSignParams params) {
@@ -133,9 +153,11 @@ public class TxCreator {
             TransactionInput input = new TransactionInput();
             inputs.add(input);
             Utxo utxo = utxos.get(i);
-            byte[] hash = Utils.hexStringToBytes(utxo.getHash());
-            hash = Utils.reverseBytes(hash);
-            input.setHash(hash);
+            try {
+                input.setHash(UInt256.parse(utxo.getHash()));
+            } catch (IllegalArgumentException e) {
+                return "";
+            }
 
             input.setIndex(utxo.getN());
             sum += utxo.getValue();
@@ -152,13 +174,20 @@ public class TxCreator {
         String assetId = params.getAssetId();
         TransactionOutput output = new TransactionOutput();
         outputs.add(output);
-        byte[] vAssetId = Utils.hexStringToBytes(assetId);
-        vAssetId = Utils.reverseBytes(vAssetId);
+        UInt256 vAssetId;
+        try {
+            vAssetId = UInt256.parse(assetId);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
         output.setAssetId(vAssetId);
         Fixed8 value = new Fixed8();
         value.setValue(sum);
         output.setValue(value);
-        byte[] pubkeyhash = Helper.getPublicKeyHashFromAddress(toAddress);
+        UInt160 pubkeyhash = AddressCache.getScriptHash(toAddress);
+        if(pubkeyhash == null) {
+            return "";
+        }
         output.setToAddress(pubkeyhash);
 
         String fromAddress = params.getFrom();
@@ -169,7 +198,6 @@ public class TxCreator {
         invokeTransData.setGas(gas);
         tx.setExtdata(invokeTransData);
 
-        byte[] unsignedData = tx.getMessage();
         String privKey = params.getPriKey();
         DumpedPrivateKey dumpedPrivateKey = null;
 
@@ -184,10 +212,12 @@ public class TxCreator {
         }
 
         ECKey ecKey = dumpedPrivateKey.getKey();
+        ecKey.setDeterministicSigning(true);
+        ecKey.setNoncePool(noncePool);
 
-        Sha256Hash sha256Hash = Sha256Hash.create(unsignedData);
+        Sha256Hash sha256Hash = tx.getMessageHash();
 
-        byte[] signature = Helper.sign(sha256Hash, ecKey);
+        byte[] signature = Helper.getSignatureBackend().sign(sha256Hash, ecKey);
         byte[] pub = ecKey.getPubKey();
         tx.addWitness(signature, pub, fromAddress);
 
@@ -195,7 +225,7 @@ public class TxCreator {
         ECPrivateKey ecPrivateKey = Helper.getPrivateKey(ecKey);
         byte[] signData = null;
         try {
-            signData = Helper.signature(unsignedData, ecPrivateKey);
+            signData = Helper.signature(tx.getMessage(), ecPrivateKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -206,8 +236,15 @@ public class TxCreator {
         tx.addWitness(signData, pub, compressed, fromAddress);
         */
 
-        byte[] rawData = tx.getRawData();
-        String raw = Utils.bytesToHexString(rawData);
-        return  raw;
+        return toRawHex(tx);
+    }
+
+    // Hex of the signed transaction, serialized into a pooled buffer and encoded from there.
+    private static String toRawHex(Transaction tx) {
+        int size = tx.getSerializedSize();
+        try (BufferPool.Lease lease = BufferPool.lease(size)) {
+            tx.serializeTo(lease.buffer());
+            return HexCodec.encode(lease.array(), 0, size, false);
+        }
     }
 }
@@ -29,15 +29,16 @@ public class TxUtils {
         jsonArray.add(toJson);
         jsonArray.add(numParam);
 
-        ScriptBuilder scriptBuilder = new ScriptBuilder();
-        scriptBuilder.EmitParamJson(jsonArray);
-        scriptBuilder.EmitPushString("transfer");
-        try {
-            scriptBuilder.EmitAppCall(assetId, false);
-        } catch (Exception e) {
-            e.printStackTrace();
+        try (ScriptBuilder scriptBuilder = ScriptBuilder.pooled()) {
+            scriptBuilder.EmitParamJson(jsonArray);
+            scriptBuilder.EmitPushString("transfer");
+            try {
+                scriptBuilder.EmitAppCall(assetId, false);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            return scriptBuilder.toBytes();
         }
-
-        return scriptBuilder.toBytes();
     }
 }
@@ -0,0 +1,92 @@
+package core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A bounded, concurrent cache of address conversions in both directions: Base58Check address to script hash, and
+ * script hash to address. Each direction costs a base58 conversion and a double SHA-256 checksum, and payouts tend to
+ * go to the same few addresses, so the results are kept here and shared by every thread.</p>
+ *
+ * <p>Both directions are held in Guava caches, which are lock striped, and evict roughly least-recently-used entries
+ * once {@link #getMaximumSize()} is reached. Only successful conversions are cached. Hit and miss counts for each
+ * direction are available for tuning the size.</p>
+ */
+public class AddressCache {
+    /** Default number of entries kept in each direction. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static final NetworkParameters params = new NetworkParameters();
+
+    private static volatile long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private static volatile Cache<String, UInt160> scriptHashes = build(DEFAULT_MAXIMUM_SIZE);
+    private static volatile Cache<UInt160, String> addresses = build(DEFAULT_MAXIMUM_SIZE);
+
+    private static <K, V> Cache<K, V> build(long size) {
+        return CacheBuilder.newBuilder().maximumSize(size).recordStats().build();
+    }
+
+    /**
+     * Returns the script hash encoded in the given address, or null if it is not a 25 byte Base58Check string with a
+     * valid checksum. Never throws for bad input, including null.
+     */
+    public static UInt160 getScriptHash(String address) {
+        if (address == null)
+            return null;
+        Cache<String, UInt160> c = scriptHashes;
+        UInt160 hash = c.getIfPresent(address);
+        if (hash == null) {
+            byte[] decoded = new byte[Base58.ADDRESS_LENGTH];
+            if (!Base58.decodeChecked25(address, decoded, 0))
+                return null;
+            hash = UInt160.read(decoded, 1);
+            c.put(address, hash);
+        }
+        return hash;
+    }
+
+    /** Returns the address for the given script hash. */
+    public static String getAddress(UInt160 scriptHash) {
+        Cache<UInt160, String> c = addresses;
+        String address = c.getIfPresent(scriptHash);
+        if (address == null) {
+            address = new Address(params, scriptHash.toByteArray()).toString();
+            c.put(scriptHash, address);
+        }
+        return address;
+    }
+
+    /** Returns hit and miss counts for address to script hash lookups. */
+    public static CacheStats scriptHashStats() {
+        return scriptHashes.stats();
+    }
+
+    /** Returns hit and miss counts for script hash to address lookups. */
+    public static CacheStats addressStats() {
+        return addresses.stats();
+    }
+
+    public static long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Replaces both caches with empty ones holding at most {@code size} entries each. Statistics start again from
+     * zero.
+     */
+    public static synchronized void setMaximumSize(long size) {
+        checkArgument(size >= 0, "size must not be negative");
+        maximumSize = size;
+        scriptHashes = build(size);
+        addresses = build(size);
+    }
+
+    /** Drops every cached entry. Statistics are kept. */
+    public static void clear() {
+        scriptHashes.invalidateAll();
+        addresses.invalidateAll();
+    }
+}
@@ -0,0 +1,128 @@
+package core;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>Bulk conversion between NEO addresses and their 20 byte script hashes, for whitelists and deposit tables with
+ * millions of entries.</p>
+ *
+ * <p>Work is split into ranges and run on a {@link ForkJoinPool}, the common pool unless one is given. Script hashes
+ * are packed back to back in a single byte[], entry i at offset 20 * i, in the same byte order as
+ * {@link Address#getHash160()}. Invalid entries are reported in a {@link BitSet} instead of by exception, so a bad
+ * line costs no more than a good one.</p>
+ */
+public class Addresses {
+    // Ranges are multiples of 64 entries so each task owns whole words of the invalid bitmap.
+    private static final int SPLIT_THRESHOLD = 64 * 16;
+
+    private static final int VERSION = new NetworkParameters().addressHeader;
+
+    /**
+     * Decodes every address in {@code in} into {@code out}, using the common pool. See
+     * {@link #decodeAll(CharSequence[], byte[], BitSet, ForkJoinPool)}.
+     */
+    public static int decodeAll(CharSequence[] in, byte[] out, BitSet invalid) {
+        return decodeAll(in, out, invalid, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodes every address in {@code in} into {@code out[20 * i, 20 * i + 20)}. An entry is invalid if it is null,
+     * is not Base58Check for 25 bytes, has a bad checksum or does not start with the NEO address version byte. Its
+     * slot in {@code out} is zeroed and, if {@code invalid} is not null, its index is set there.
+     *
+     * @return the number of valid entries.
+     */
+    public static int decodeAll(CharSequence[] in, byte[] out, BitSet invalid, ForkJoinPool pool) {
+        checkArgument(out.length >= (long) in.length * Address.LENGTH, "out is too small");
+        long[] words = new long[(in.length + 63) / 64];
+        pool.invoke(new DecodeTask(in, out, words, 0, in.length));
+        BitSet failed = BitSet.valueOf(words);
+        if (invalid != null)
+            invalid.or(failed);
+        return in.length - failed.cardinality();
+    }
+
+    /** Encodes {@code out.length} packed script hashes from {@code hash160s} into addresses, using the common pool. */
+    public static void encodeAll(byte[] hash160s, String[] out) {
+        encodeAll(hash160s, out, ForkJoinPool.commonPool());
+    }
+
+    /** Encodes the script hash at {@code hash160s[20 * i]} into {@code out[i]}, for every i in {@code out}. */
+    public static void encodeAll(byte[] hash160s, String[] out, ForkJoinPool pool) {
+        checkArgument(hash160s.length >= (long) out.length * Address.LENGTH, "hash160s is too small");
+        pool.invoke(new EncodeTask(hash160s, out, 0, out.length));
+    }
+
+    private static class DecodeTask extends RecursiveAction {
+        private final CharSequence[] in;
+        private final byte[] out;
+        private final long[] invalid;
+        private final int from, to;
+
+        DecodeTask(CharSequence[] in, byte[] out, long[] invalid, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.invalid = invalid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = from + ((to - from) / 2 & ~63);
+                invokeAll(new DecodeTask(in, out, invalid, from, mid), new DecodeTask(in, out, invalid, mid, to));
+                return;
+            }
+            byte[] decoded = new byte[Base58.ADDRESS_LENGTH];
+            for (int i = from; i < to; i++) {
+                int offset = i * Address.LENGTH;
+                CharSequence address = in[i];
+                if (address != null && Base58.decodeChecked25(address, decoded, 0)
+                        && (decoded[0] & 0xFF) == VERSION) {
+                    System.arraycopy(decoded, 1, out, offset, Address.LENGTH);
+                } else {
+                    for (int j = 0; j < Address.LENGTH; j++)
+                        out[offset + j] = 0;
+                    invalid[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    private static class EncodeTask extends RecursiveAction {
+        private final byte[] in;
+        private final String[] out;
+        private final int from, to;
+
+        EncodeTask(byte[] in, String[] out, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EncodeTask(in, out, from, mid), new EncodeTask(in, out, mid, to));
+                return;
+            }
+            byte[] raw = new byte[Base58.ADDRESS_LENGTH];
+            byte[] check = new byte[32];
+            char[] chars = new char[Base58.MAX_ADDRESS_CHARS];
+            raw[0] = (byte) VERSION;
+            for (int i = from; i < to; i++) {
+                System.arraycopy(in, i * Address.LENGTH, raw, 1, Address.LENGTH);
+                Utils.doubleDigest(raw, 0, 1 + Address.LENGTH, check, 0);
+                System.arraycopy(check, 0, raw, 1 + Address.LENGTH, 4);
+                out[i] = new String(chars, 0, Base58.encode25(raw, 0, chars, 0));
+            }
+        }
+    }
+}
@@ -17,7 +17,6 @@ package core; /**
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
-import java.util.Arrays;
 
 /**
  * <p>core.Base58 is a way to encode Litecoin addresses as numbers and letters. Note that this is not the same base58 as used by
@@ -49,11 +48,30 @@ public class Base58 {
         }
     }
 
+    /** Length of a NEO address (and of any Base58Check string with a 20 byte payload) once decoded. */
+    public static final int ADDRESS_LENGTH = 25;
+
+    /** Most characters a 25 byte value can take in base58. */
+    public static final int MAX_ADDRESS_CHARS = 35;
+
+    // The 25 byte fast path works on seven 32 bit limbs, most significant first. The top limb holds only the first
+    // byte, so a valid value never has more than 8 bits in it. Conversion happens five base58 digits at a time,
+    // since 58^5 still fits in 32 bits and limb * 58^5 + carry fits in a long.
+    private static final int LIMBS = 7;
+    private static final long[] POW58 = {
+            1L, 58L, 58L * 58, 58L * 58 * 58, 58L * 58 * 58 * 58, 58L * 58 * 58 * 58 * 58 };
+    private static final long CHUNK = POW58[5];
+
     /** Encodes the given bytes in base58. No checksum is appended. */
     public static String encode(byte[] input) {
         if (input.length == 0) {
             return "";
-        }       
+        }
+        if (input.length == ADDRESS_LENGTH) {
+            char[] chars = new char[MAX_ADDRESS_CHARS];
+            int n = encode25(input, 0, chars, 0);
+            return new String(chars, 0, n);
+        }
         input = copyOfRange(input, 0, input.length);
         // Count leading zeroes.
         int zeroCount = 0;
@@ -94,6 +112,12 @@ public class Base58 {
         if (input.length() == 0) {
             return new byte[0];
         }
+        if (input.length() <= MAX_ADDRESS_CHARS) {
+            byte[] out = new byte[ADDRESS_LENGTH];
+            if (decode25(input, out, 0))
+                return out;
+            // Not a 25 byte value, or not valid base58: the generic path below sorts out which.
+        }
         byte[] input58 = new byte[input.length()];
         // Transform the String to a base58 byte sequence
         for (int i = 0; i < input.length(); ++i) {
@@ -149,15 +173,126 @@ public class Base58 {
         byte tmp [] = decode(input);
         if (tmp.length < 4)
             throw new AddressFormatException("Input to short");
-        byte[] bytes = copyOfRange(tmp, 0, tmp.length - 4);
-        byte[] checksum = copyOfRange(tmp, tmp.length - 4, tmp.length);
-        
-        tmp = Utils.doubleDigest(bytes);
-        byte[] hash = copyOfRange(tmp, 0, 4);
-        if (!Arrays.equals(checksum, hash)) 
+        if (!checksumValid(tmp, 0, tmp.length))
             throw new AddressFormatException("Checksum does not validate");
         
-        return bytes;
+        return copyOfRange(tmp, 0, tmp.length - 4);
+    }
+
+    /**
+     * Encodes the 25 bytes at {@code input[offset]} in base58 into {@code out} starting at {@code outOffset}, which
+     * needs room for {@link #MAX_ADDRESS_CHARS} characters. Produces the same characters as {@link #encode(byte[])}
+     * without going through byte-at-a-time long division.
+     *
+     * @return the number of characters written.
+     */
+    public static int encode25(byte[] input, int offset, char[] out, int outOffset) {
+        long[] limbs = new long[LIMBS];
+        limbs[0] = input[offset] & 0xFF;
+        for (int i = 1; i < LIMBS; i++)
+            limbs[i] = Utils.readUint32BE(input, offset + 1 + (i - 1) * 4);
+
+        // Divide by 58^5 repeatedly, each remainder giving five digits, least significant chunk first.
+        byte[] digits = new byte[MAX_ADDRESS_CHARS];
+        int start = 0;
+        for (int chunk = LIMBS - 1; chunk >= 0; chunk--) {
+            long rem = 0;
+            for (int i = start; i < LIMBS; i++) {
+                long cur = (rem << 32) | limbs[i];
+                limbs[i] = cur / CHUNK;
+                rem = cur % CHUNK;
+            }
+            while (start < LIMBS && limbs[start] == 0)
+                start++;
+            for (int k = 4; k >= 0; k--) {
+                digits[chunk * 5 + k] = (byte) (rem % 58);
+                rem /= 58;
+            }
+        }
+
+        // Leading zero bytes become '1's; leading zero digits of the value are dropped.
+        int zeroCount = 0;
+        while (zeroCount < ADDRESS_LENGTH && input[offset + zeroCount] == 0)
+            zeroCount++;
+        int j = 0;
+        while (j < MAX_ADDRESS_CHARS && digits[j] == 0)
+            j++;
+        int n = outOffset;
+        for (int i = 0; i < zeroCount; i++)
+            out[n++] = ALPHABET[0];
+        for (; j < MAX_ADDRESS_CHARS; j++)
+            out[n++] = ALPHABET[digits[j]];
+        return n - outOffset;
+    }
+
+    /**
+     * Decodes base58 text that stands for exactly 25 bytes into {@code out[offset, offset + 25)}, five digits at a
+     * time. Does not throw: returns false, leaving the contents of {@code out} unspecified, if the input has a
+     * character outside the alphabet or decodes to any other length. The checksum is not checked, see
+     * {@link #decodeChecked25(CharSequence, byte[], int)}.
+     */
+    public static boolean decode25(CharSequence input, byte[] out, int offset) {
+        int length = input.length();
+        if (length == 0 || length > MAX_ADDRESS_CHARS)
+            return false;
+        int zeroCount = 0;
+        while (zeroCount < length && input.charAt(zeroCount) == ALPHABET[0])
+            zeroCount++;
+
+        long[] limbs = new long[LIMBS];
+        long chunk = 0;
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            int digit58 = c < 128 ? INDEXES[c] : -1;
+            if (digit58 < 0)
+                return false;
+            chunk = chunk * 58 + digit58;
+            if (++digits == 5 || i == length - 1) {
+                // limbs = limbs * 58^digits + chunk
+                long carry = chunk;
+                long mult = POW58[digits];
+                for (int k = LIMBS - 1; k >= 0; k--) {
+                    long cur = limbs[k] * mult + carry;
+                    limbs[k] = cur & 0xFFFFFFFFL;
+                    carry = cur >>> 32;
+                }
+                if (carry != 0)
+                    return false;
+                chunk = 0;
+                digits = 0;
+            }
+        }
+        if (limbs[0] > 0xFF)
+            return false;
+
+        out[offset] = (byte) limbs[0];
+        for (int i = 1; i < LIMBS; i++)
+            Utils.uint32ToByteArrayBE(limbs[i], out, offset + 1 + (i - 1) * 4);
+        // The generic decoder emits one zero byte per leading '1' followed by the value's significant bytes, so the
+        // result is 25 bytes only if the value leaves exactly that many leading zero bytes.
+        int leading = 0;
+        while (leading < ADDRESS_LENGTH && out[offset + leading] == 0)
+            leading++;
+        return leading == zeroCount;
+    }
+
+    /**
+     * Same as {@link #decode25(CharSequence, byte[], int)}, and also returns false if the last four bytes are not
+     * the checksum of the first 21.
+     */
+    public static boolean decodeChecked25(CharSequence input, byte[] out, int offset) {
+        return decode25(input, out, offset) && checksumValid(out, offset, ADDRESS_LENGTH);
+    }
+
+    // True if the last four bytes of data[offset, offset + length) are the first four of the double SHA-256 of the
+    // rest.
+    private static boolean checksumValid(byte[] data, int offset, int length) {
+        byte[] hash = new byte[32];
+        Utils.doubleDigest(data, offset, length - 4, hash, 0);
+        int check = offset + length - 4;
+        return hash[0] == data[check] && hash[1] == data[check + 1] && hash[2] == data[check + 2]
+                && hash[3] == data[check + 3];
     }
     
     //
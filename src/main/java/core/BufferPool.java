@@ -0,0 +1,227 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A pool of byte arrays for short-lived serialization buffers, shared by every thread.</p>
+ *
+ * <p>Arrays come in power of two size classes from {@link #MIN_SIZE} to {@link #MAX_SIZE} bytes. Each thread keeps
+ * one array per class in a slot of its own, so a thread that leases and returns buffers in turn touches no shared
+ * state at all. An array returned to a thread whose slot is already full goes to a lock-free queue shared by all
+ * threads, which holds at most {@link #MAX_SHARED_PER_CLASS} arrays per class; beyond that it is left to the garbage
+ * collector. Requests larger than {@link #MAX_SIZE} are allocated and dropped without pooling.</p>
+ *
+ * <p>Buffers are handed out as a {@link Lease}, which must be closed, at most once, when the array is no longer
+ * used. Leased arrays are not cleared, and a lease that is never closed only costs the pool that array.</p>
+ */
+public class BufferPool {
+    /** Size of the smallest class. */
+    public static final int MIN_SIZE = 256;
+    /** Size of the largest class; bigger leases are not pooled. */
+    public static final int MAX_SIZE = 1 << 20;
+    /** The most arrays of each class kept in the shared queue. */
+    public static final int MAX_SHARED_PER_CLASS = 64;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+
+    // Pooled arrays are kept wrapped in heap buffers, so a lease can offer a ByteBuffer without allocating one.
+    private static final ThreadLocal<ByteBuffer[]> slots = new ThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[CLASSES];
+        }
+    };
+
+    private static final ConcurrentLinkedQueue<ByteBuffer>[] shared = newQueues();
+    private static final AtomicInteger[] sharedCounts = new AtomicInteger[CLASSES];
+
+    static {
+        for (int i = 0; i < CLASSES; i++)
+            sharedCounts[i] = new AtomicInteger();
+    }
+
+    private static final LongAdder leases = new LongAdder();
+    private static final LongAdder threadHits = new LongAdder();
+    private static final LongAdder sharedHits = new LongAdder();
+    private static final LongAdder allocations = new LongAdder();
+    private static final LongAdder unpooled = new LongAdder();
+    private static final LongAdder discarded = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentLinkedQueue<ByteBuffer>[] newQueues() {
+        ConcurrentLinkedQueue<ByteBuffer>[] queues = new ConcurrentLinkedQueue[CLASSES];
+        for (int i = 0; i < CLASSES; i++)
+            queues[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        return queues;
+    }
+
+    /** A leased array. Close it to give the array back to the pool. */
+    public static final class Lease implements AutoCloseable {
+        private ByteBuffer buffer;
+        private final int sizeClass;
+
+        private Lease(ByteBuffer buffer, int sizeClass) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+        }
+
+        /** The leased array, at least as long as asked for. */
+        public byte[] array() {
+            return buffer().array();
+        }
+
+        /**
+         * A buffer over the whole array, positioned at 0 with its limit at the array's end and big endian order
+         * when leased. It is the same buffer on every call.
+         */
+        public ByteBuffer buffer() {
+            ByteBuffer b = this.buffer;
+            if (b == null)
+                throw new IllegalStateException("lease already closed");
+            return b;
+        }
+
+        /** Returns the array to the pool. Calling it again does nothing. */
+        public void close() {
+            ByteBuffer b = this.buffer;
+            if (b == null)
+                return;
+            this.buffer = null;
+            if (sizeClass >= 0)
+                release(b, sizeClass);
+        }
+    }
+
+    /** Leases an array of at least {@code minSize} bytes. */
+    public static Lease lease(int minSize) {
+        checkArgument(minSize >= 0, "minSize must not be negative");
+        leases.increment();
+        if (minSize > MAX_SIZE) {
+            unpooled.increment();
+            return new Lease(ByteBuffer.allocate(minSize), -1);
+        }
+        int sizeClass = sizeClass(minSize);
+        ByteBuffer[] local = slots.get();
+        ByteBuffer buffer = local[sizeClass];
+        if (buffer != null) {
+            local[sizeClass] = null;
+            threadHits.increment();
+            return new Lease(buffer, sizeClass);
+        }
+        buffer = shared[sizeClass].poll();
+        if (buffer != null) {
+            sharedCounts[sizeClass].decrementAndGet();
+            sharedHits.increment();
+            return new Lease(buffer, sizeClass);
+        }
+        allocations.increment();
+        return new Lease(ByteBuffer.allocate(MIN_SIZE << sizeClass), sizeClass);
+    }
+
+    private static void release(ByteBuffer buffer, int sizeClass) {
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer[] local = slots.get();
+        if (local[sizeClass] == null) {
+            local[sizeClass] = buffer;
+            return;
+        }
+        AtomicInteger count = sharedCounts[sizeClass];
+        if (count.incrementAndGet() <= MAX_SHARED_PER_CLASS) {
+            shared[sizeClass].offer(buffer);
+        } else {
+            count.decrementAndGet();
+            discarded.increment();
+        }
+    }
+
+    // Index of the smallest class holding size bytes.
+    private static int sizeClass(int size) {
+        if (size <= MIN_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    /** Drops every array held in the shared queues. Threads' own slots are kept. Statistics are kept. */
+    public static void clear() {
+        for (int i = 0; i < CLASSES; i++) {
+            while (shared[i].poll() != null)
+                sharedCounts[i].decrementAndGet();
+        }
+    }
+
+    /** Returns a snapshot of the pool's counters since the class was loaded. */
+    public static Stats stats() {
+        int pooled = 0;
+        for (AtomicInteger count : sharedCounts)
+            pooled += count.get();
+        return new Stats(leases.sum(), threadHits.sum(), sharedHits.sum(), allocations.sum(), unpooled.sum(),
+                discarded.sum(), pooled);
+    }
+
+    /** Counters describing how leases were served. */
+    public static final class Stats {
+        private final long leases, threadHits, sharedHits, allocations, unpooled, discarded;
+        private final int sharedArrays;
+
+        Stats(long leases, long threadHits, long sharedHits, long allocations, long unpooled, long discarded,
+              int sharedArrays) {
+            this.leases = leases;
+            this.threadHits = threadHits;
+            this.sharedHits = sharedHits;
+            this.allocations = allocations;
+            this.unpooled = unpooled;
+            this.discarded = discarded;
+            this.sharedArrays = sharedArrays;
+        }
+
+        /** Leases handed out. */
+        public long getLeases() {
+            return leases;
+        }
+
+        /** Leases served from the calling thread's own slot. */
+        public long getThreadHits() {
+            return threadHits;
+        }
+
+        /** Leases served from the shared queue. */
+        public long getSharedHits() {
+            return sharedHits;
+        }
+
+        /** Leases for which a new pooled array had to be allocated. */
+        public long getAllocations() {
+            return allocations;
+        }
+
+        /** Leases larger than {@link #MAX_SIZE}, allocated without pooling. */
+        public long getUnpooled() {
+            return unpooled;
+        }
+
+        /** Returned arrays dropped because the shared queue for their class was full. */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        /** Arrays waiting in the shared queues when the snapshot was taken. */
+        public int getSharedArrays() {
+            return sharedArrays;
+        }
+
+        @Override
+        public String toString() {
+            return "BufferPool.Stats{leases=" + leases + ", threadHits=" + threadHits + ", sharedHits=" + sharedHits
+                    + ", allocations=" + allocations + ", unpooled=" + unpooled + ", discarded=" + discarded
+                    + ", sharedArrays=" + sharedArrays + "}";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package core;
+
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+
+/**
+ * <p>The implementations of the secp256r1 curve that {@link ECKey} can run on. Everything ECKey does with the curve,
+ * signing, verification, public key derivation and point decompression, goes through the {@link ECDomainParameters}
+ * returned by {@link #domain()}, so both backends give identical results and differ only in speed.</p>
+ *
+ * <p>The backend is fixed when ECKey is first loaded. It is {@link #OPTIMIZED} unless the system property
+ * {@code neo.ec.curve} is set to {@code generic}.</p>
+ */
+public enum CurveBackend {
+    /**
+     * Bouncy Castle's generic prime field curve: BigInteger field elements, reduced with a general modulus on every
+     * operation.
+     */
+    GENERIC {
+        @Override
+        X9ECParameters curveParameters() {
+            return SECNamedCurves.getByName("secp256r1");
+        }
+    },
+
+    /**
+     * Bouncy Castle's curve specialised for the NIST P-256 prime: field elements are fixed arrays of eight 32-bit
+     * limbs multiplied through 64-bit accumulators, reduction uses the special form of the prime instead of division,
+     * and points stay in Jacobian coordinates, so no BigInteger is allocated in the point arithmetic.
+     */
+    OPTIMIZED {
+        @Override
+        X9ECParameters curveParameters() {
+            return CustomNamedCurves.getByName("secp256r1");
+        }
+    };
+
+    /** Name of the system property that selects the backend. */
+    public static final String PROPERTY = "neo.ec.curve";
+
+    abstract X9ECParameters curveParameters();
+
+    /** Returns fresh domain parameters for this implementation of the curve. */
+    public ECDomainParameters domain() {
+        X9ECParameters params = curveParameters();
+        return new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
+    }
+
+    /** Returns the backend selected by the {@code neo.ec.curve} system property. */
+    static CurveBackend fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name != null && name.equalsIgnoreCase("generic"))
+            return GENERIC;
+        return OPTIMIZED;
+    }
+}
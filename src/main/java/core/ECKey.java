@@ -16,18 +16,21 @@ package core; /**
 
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.sec.SECNamedCurves;
-import org.bouncycastle.asn1.x9.X9ECParameters;
-import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
-import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.params.ECDomainParameters;
-import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
-import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.util.BigIntegers;
+import org.bouncycastle.math.ec.ECAlgorithms;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.math.ec.WNafUtil;
 
 
 import java.io.ByteArrayOutputStream;
@@ -36,6 +39,7 @@ import java.io.Serializable;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.BitSet;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -64,10 +68,29 @@ public class ECKey implements Serializable {
     private static final SecureRandom secureRandom;
     private static final long serialVersionUID = -728224901792295832L;
 
+    // Width of the fixed-base comb used for multiples of G. Bouncy Castle defaults to 5 (32 points, 52 add/double
+    // rounds per multiply); 8 costs a 256 point table but needs only 32 rounds.
+    private static final int COMB_WIDTH = 8;
+
+    // Multiplier for k*G. The comb table is attached to the generator point and is built once, below, rather than
+    // lazily by whichever thread signs first. After that it is only ever read, so all threads share it.
+    private static final ECMultiplier baseMultiplier;
+
+    // wNAF window that Bouncy Castle's interleaved multiplication uses for full size scalars, so the tables that
+    // PublicKeyCache attaches to public keys are the ones it looks for.
+    private static final int WNAF_WIDTH;
+
     static {
-        X9ECParameters params = SECNamedCurves.getByName("secp256r1");
-        ecParams = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
+        ecParams = CurveBackend.fromSystemProperty().domain();
         secureRandom = new SecureRandom();
+        baseMultiplier = new FixedPointCombMultiplier() {
+            @Override
+            protected int getWidthForCombSize(int combSize) {
+                return COMB_WIDTH;
+            }
+        };
+        FixedPointUtil.precompute(ecParams.getG(), COMB_WIDTH);
+        WNAF_WIDTH = Math.max(2, Math.min(16, WNafUtil.getWindowSize(ecParams.getN().bitLength())));
     }
 
     // The two parts of the key. If "priv" is set, "pub" can always be calculated. If "pub" is set but not "priv", we
@@ -76,6 +99,12 @@ public class ECKey implements Serializable {
     private BigInteger priv;
     private byte[] pub;
 
+    // If set, signing nonces are derived from the key and message as in RFC 6979 instead of being drawn from the
+    // shared SecureRandom. See setDeterministicSigning().
+    private boolean deterministicSigning;
+
+    // Optional source of precomputed nonces, see setNoncePool(). Not part of the key, so not serialized.
+    transient private NoncePool noncePool;
 
     // Transient because it's calculated on demand.
     transient private byte[] pubKeyHash;
@@ -85,23 +114,42 @@ public class ECKey implements Serializable {
      * (32 for the co-ordinate and 1 byte to represent the y bit).
      */
     public ECKey() {
-        ECKeyPairGenerator generator = new ECKeyPairGenerator();
-        ECKeyGenerationParameters keygenParams = new ECKeyGenerationParameters(ecParams, secureRandom);
-        generator.init(keygenParams);
-        AsymmetricCipherKeyPair keypair = generator.generateKeyPair();
-        ECPrivateKeyParameters privParams = (ECPrivateKeyParameters) keypair.getPrivate();
-        ECPublicKeyParameters pubParams = (ECPublicKeyParameters) keypair.getPublic();
-        priv = privParams.getD();
-        // Unfortunately Bouncy Castle does not let us explicitly change a point to be compressed, even though it
-        // could easily do so. We must re-build it here so the ECPoints withCompression flag can be set to true.
-        ECPoint uncompressed = pubParams.getQ();
-        ECPoint compressed = compressPoint(uncompressed);
-        pub = compressed.getEncoded();
+        priv = randomPrivateKey();
+        pub = multiplyBase(priv).getEncoded(true);
+    }
 
+    /**
+     * Generates {@code count} new, independent keypairs with compressed public keys. Each public key costs only the
+     * point additions of the shared fixed base comb table, and the whole batch is converted to affine form with one
+     * field inversion, instead of one per key as with {@link #ECKey()}.
+     */
+    public static ECKey[] createBatch(int count) {
+        checkArgument(count > 0, "count must be positive");
+        BigInteger[] privs = new BigInteger[count];
+        ECPoint[] points = new ECPoint[count];
+        for (int i = 0; i < count; i++) {
+            privs[i] = randomPrivateKey();
+            points[i] = multiplyBase(privs[i]);
+        }
+        ecParams.getCurve().normalizeAll(points);
+        ECKey[] keys = new ECKey[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = new ECKey(privs[i], points[i].getEncoded(true), true);
+        return keys;
     }
 
-    private static ECPoint compressPoint(ECPoint uncompressed) {
-        return new ECPoint.Fp(ecParams.getCurve(), uncompressed.getX(), uncompressed.getY(), true);
+    /**
+     * Draws a private key the way Bouncy Castle's ECKeyPairGenerator does: uniformly in [1, n), rejecting the rare
+     * values whose NAF is unusually sparse.
+     */
+    private static BigInteger randomPrivateKey() {
+        BigInteger n = ecParams.getN();
+        int minWeight = n.bitLength() >>> 2;
+        BigInteger d;
+        do {
+            d = randomK(n);
+        } while (WNafUtil.getNafWeight(d) < minWeight);
+        return d;
     }
 
     /**
@@ -188,10 +236,32 @@ public class ECKey implements Serializable {
      * new BigInteger(1, bytes);</tt>
      */
     public static byte[] publicKeyFromPrivate(BigInteger privKey, boolean compressed) {
-        ECPoint point = ecParams.getG().multiply(privKey);
-        if (compressed)
-            point = compressPoint(point);
-        return point.getEncoded();
+        ECPoint point = baseMultiplier.multiply(ecParams.getG(), privKey);
+        return point.getEncoded(compressed);
+    }
+
+    /** Returns k*G, computed with the shared comb table. The result is not normalized. */
+    static ECPoint multiplyBase(BigInteger k) {
+        return baseMultiplier.multiply(ecParams.getG(), k);
+    }
+
+    /**
+     * Returns the uncompressed 65 byte encoding (0x04, x, y) of an encoded public key, compressed or not.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid point on the curve.
+     */
+    public static byte[] decompressPubKey(byte[] pub) {
+        return decodePublicKey(pub).getEncoded(false);
+    }
+
+    /** Decodes a public key through {@link PublicKeyCache}, so repeat keys skip decoding and wNAF precomputation. */
+    private static ECPoint decodePublicKey(byte[] pub) {
+        return PublicKeyCache.decode(ecParams.getCurve(), pub, WNAF_WIDTH);
+    }
+
+    /** Returns n, the order of the curve's base point. */
+    static BigInteger getCurveOrder() {
+        return ecParams.getN();
     }
 
     /** Gets the hash160 form of the public key (as seen in addresses). */
@@ -246,6 +316,33 @@ public class ECKey implements Serializable {
        priv = BigInteger.ZERO;
     }
 
+    /**
+     * Selects how {@link #sign(Sha256Hash)} picks its nonce. When true, k is computed from the private key and the
+     * message hash with HMAC-SHA256 as described in RFC 6979, so the same key and hash always give the same signature
+     * and no thread touches the shared SecureRandom. When false (the default), k is random.
+     */
+    public void setDeterministicSigning(boolean deterministicSigning) {
+        this.deterministicSigning = deterministicSigning;
+    }
+
+    public boolean isDeterministicSigning() {
+        return deterministicSigning;
+    }
+
+    /**
+     * Makes {@link #sign(Sha256Hash)} take its nonces from the given pool, which leaves only a couple of modular
+     * multiplications on the signing thread. When the pool is empty the nonce is computed inline as usual, following
+     * {@link #setDeterministicSigning(boolean)}. Pooled nonces are random, so signatures made with them are not
+     * reproducible. Pass null to stop using a pool. One pool can be shared by any number of keys.
+     */
+    public void setNoncePool(NoncePool noncePool) {
+        this.noncePool = noncePool;
+    }
+
+    public NoncePool getNoncePool() {
+        return noncePool;
+    }
+
     /**
      * Groups the two components that make up a signature, and provides a way to encode to DER form, which is
      * how ECDSA signatures are represented when embedded in other data structures in the Litecoin protocol. The raw
@@ -298,14 +395,56 @@ public class ECKey implements Serializable {
      * @param aesKey The AES key to use for decryption of the private key. If null then no decryption is required.
      */
     public ECDSASignature sign(Sha256Hash input, KeyParameter aesKey){
+        return sign(input.getBytes(), null);
+    }
+
+    /**
+     * Signs a 32 byte hash. If this key signs deterministically, {@code kCalculator} is (re)initialised and used for
+     * the nonce, so callers such as {@link SigningContext} can keep one per thread. If it is null a new one is made.
+     */
+    ECDSASignature sign(byte[] hash, HMacDSAKCalculator kCalculator) {
         // The private key bytes to use for signing.
         BigInteger privateKeyForSigning = priv;
 
-        ECDSASigner signer = new ECDSASigner();
-        ECPrivateKeyParameters privKey = new ECPrivateKeyParameters(privateKeyForSigning, ecParams);
-        signer.init(true, privKey);
-        BigInteger[] sigs = signer.generateSignature(input.getBytes());
-        return new ECDSASignature(sigs[0], sigs[1]);
+        // This is ECDSASigner.generateSignature(), except that k*G goes through the shared comb table. The hash is
+        // exactly as long as the curve order, so it is used as e without truncation.
+        BigInteger n = ecParams.getN();
+        BigInteger e = new BigInteger(1, hash);
+        NoncePool pool = noncePool;
+        if (pool != null) {
+            NoncePool.Nonce nonce = pool.poll();
+            if (nonce != null) {
+                BigInteger s = nonce.kInv.multiply(e.add(privateKeyForSigning.multiply(nonce.r))).mod(n);
+                if (s.signum() != 0)
+                    return new ECDSASignature(nonce.r, s);
+            }
+        }
+        if (deterministicSigning) {
+            if (kCalculator == null)
+                kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+            kCalculator.init(n, privateKeyForSigning, hash);
+        } else {
+            kCalculator = null;
+        }
+        while (true) {
+            BigInteger k = kCalculator != null ? kCalculator.nextK() : randomK(n);
+            ECPoint p = multiplyBase(k).normalize();
+            BigInteger r = p.getAffineXCoord().toBigInteger().mod(n);
+            if (r.signum() == 0)
+                continue;
+            BigInteger s = k.modInverse(n).multiply(e.add(privateKeyForSigning.multiply(r))).mod(n);
+            if (s.signum() != 0)
+                return new ECDSASignature(r, s);
+        }
+    }
+
+    /** Picks a uniformly random nonce in [1, n - 1]. */
+    static BigInteger randomK(BigInteger n) {
+        BigInteger k;
+        do {
+            k = new BigInteger(n.bitLength(), secureRandom);
+        } while (k.signum() == 0 || k.compareTo(n) >= 0);
+        return k;
     }
 
     /**
@@ -317,7 +456,7 @@ public class ECKey implements Serializable {
      */
     public static boolean verify(byte[] data, byte[] signature, byte[] pub) {
         ECDSASigner signer = new ECDSASigner();
-        ECPublicKeyParameters params = new ECPublicKeyParameters(ecParams.getCurve().decodePoint(pub), ecParams);
+        ECPublicKeyParameters params = new ECPublicKeyParameters(decodePublicKey(pub), ecParams);
         signer.init(false, params);
         try {
             ASN1InputStream decoder = new ASN1InputStream(signature);
@@ -343,7 +482,7 @@ public class ECKey implements Serializable {
     public static boolean neoVerify(byte[] data, byte[] signature, byte[] pub) {
 
         ECDSASigner signer = new ECDSASigner();
-        ECPublicKeyParameters params = new ECPublicKeyParameters(ecParams.getCurve().decodePoint(pub), ecParams);
+        ECPublicKeyParameters params = new ECPublicKeyParameters(decodePublicKey(pub), ecParams);
         signer.init(false, params);
 
         byte[] rBytes = null;
@@ -380,6 +519,93 @@ public class ECKey implements Serializable {
 
     }
 
+    /**
+     * <p>Verifies many NEO style (64 byte r||s) signatures at once. Entry i checks {@code signatures[i]} over the hash
+     * {@code hashes[i]} against the public key {@code pubs[i]}, exactly as {@link #neoVerify} would.</p>
+     *
+     * <p>The batch shares work that separate calls repeat: all the s values are inverted mod n with one modInverse
+     * (Montgomery's trick), public keys come from {@link PublicKeyCache} so each distinct key is decoded once and
+     * keeps its wNAF table for every signature it appears in, each u1*G + u2*Q is computed with interleaved
+     * (Shamir/Straus) multiplication, and all the results are taken to affine form with a single field inversion.
+     * Every entry is still checked on its own, so a bad signature is identified directly rather than failing the
+     * whole batch.</p>
+     *
+     * @param invalid if not null, the index of every entry that does not verify is set in it.
+     * @return true if every signature verifies.
+     */
+    public static boolean verifyBatch(byte[][] hashes, byte[][] signatures, byte[][] pubs, BitSet invalid) {
+        checkArgument(hashes.length == signatures.length && hashes.length == pubs.length,
+                "hashes, signatures and pubs must have the same length");
+        int count = hashes.length;
+        BigInteger n = ecParams.getN();
+        BigInteger[] rs = new BigInteger[count];
+        BigInteger[] ss = new BigInteger[count];
+        ECPoint[] keys = new ECPoint[count];
+        for (int i = 0; i < count; i++) {
+            byte[] signature = signatures[i];
+            if (signature == null || signature.length != 64 || hashes[i] == null || pubs[i] == null)
+                continue;
+            BigInteger r = BigIntegers.fromUnsignedByteArray(signature, 0, 32);
+            BigInteger s = BigIntegers.fromUnsignedByteArray(signature, 32, 32);
+            if (r.signum() == 0 || r.compareTo(n) >= 0 || s.signum() == 0 || s.compareTo(n) >= 0)
+                continue;
+            ECPoint q;
+            try {
+                q = decodePublicKey(pubs[i]);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            rs[i] = r;
+            ss[i] = s;
+            keys[i] = q;
+        }
+
+        // Invert all the s values at once: prefix products, one modInverse, then walk back.
+        BigInteger[] prefix = new BigInteger[count];
+        BigInteger acc = BigInteger.ONE;
+        for (int i = 0; i < count; i++) {
+            if (ss[i] == null)
+                continue;
+            prefix[i] = acc;
+            acc = acc.multiply(ss[i]).mod(n);
+        }
+        BigInteger inv = acc.modInverse(n);
+        BigInteger[] sInvs = new BigInteger[count];
+        for (int i = count - 1; i >= 0; i--) {
+            if (ss[i] == null)
+                continue;
+            sInvs[i] = inv.multiply(prefix[i]).mod(n);
+            inv = inv.multiply(ss[i]).mod(n);
+        }
+
+        ECPoint[] points = new ECPoint[count];
+        for (int i = 0; i < count; i++) {
+            if (sInvs[i] == null)
+                continue;
+            // Same as ECDSASigner.calculateE(): hashes longer than the order are truncated to its bit length.
+            BigInteger e = new BigInteger(1, hashes[i]);
+            if (hashes[i].length * 8 > n.bitLength())
+                e = e.shiftRight(hashes[i].length * 8 - n.bitLength());
+            BigInteger u1 = e.multiply(sInvs[i]).mod(n);
+            BigInteger u2 = rs[i].multiply(sInvs[i]).mod(n);
+            ECPoint point = ECAlgorithms.sumOfTwoMultiplies(ecParams.getG(), u1, keys[i], u2);
+            if (!point.isInfinity())
+                points[i] = point;
+        }
+        ecParams.getCurve().normalizeAll(points);
+
+        boolean allValid = true;
+        for (int i = 0; i < count; i++) {
+            boolean valid = points[i] != null && points[i].getAffineXCoord().toBigInteger().mod(n).equals(rs[i]);
+            if (!valid) {
+                allValid = false;
+                if (invalid != null)
+                    invalid.set(i);
+            }
+        }
+        return allValid;
+    }
+
     /**
      * Verifies the given ASN.1 encoded ECDSA signature against a hash using the public key.
      *
@@ -447,8 +673,7 @@ public class ECKey implements Serializable {
         //        do another iteration of Step 1.
         //
         // More concisely, what these points mean is to use X as a compressed public key.
-        ECCurve.Fp curve = (ECCurve.Fp) ecParams.getCurve();
-        BigInteger prime = curve.getQ();  // Bouncy Castle is not consistent about the letter it uses for the prime.
+        BigInteger prime = ecParams.getCurve().getField().getCharacteristic();
         if (x.compareTo(prime) >= 0) {
             // Cannot have point co-ordinates larger than this as everything takes place modulo Q.
             return null;
@@ -478,30 +703,24 @@ public class ECKey implements Serializable {
         BigInteger eInvrInv = rInv.multiply(eInv).mod(n);
         ECPoint p1 = ecParams.getG().multiply(eInvrInv);
         ECPoint p2 = R.multiply(srInv);
-        ECPoint.Fp q = (ECPoint.Fp) p2.add(p1);
-        if (compressed) {
-            // We have to manually recompress the point as the compressed-ness gets lost when multiply() is used.
-            q = new ECPoint.Fp(curve, q.getX(), q.getY(), true);
-        }
-        return new ECKey((byte[])null, q.getEncoded());
+        ECPoint q = p2.add(p1);
+        return new ECKey((byte[])null, q.getEncoded(compressed));
     }
 
     /** Decompress a compressed public key (x co-ord and low-bit of y-coord). */
     private static ECPoint decompressKey(BigInteger xBN, boolean yBit) {
-        // This code is adapted from Bouncy Castle ECCurve.Fp.decodePoint(), but it wasn't easily re-used.
-        ECCurve.Fp curve = (ECCurve.Fp) ecParams.getCurve();
-        ECFieldElement x = new ECFieldElement.Fp(curve.getQ(), xBN);
-        ECFieldElement alpha = x.multiply(x.square().add(curve.getA())).add(curve.getB());
+        // This code is adapted from Bouncy Castle ECCurve.decodePoint(), but it wasn't easily re-used. It only uses
+        // the generic field element API so it works with whichever CurveBackend is in use.
+        ECCurve curve = ecParams.getCurve();
+        ECFieldElement x = curve.fromBigInteger(xBN);
+        ECFieldElement alpha = x.square().add(curve.getA()).multiply(x).add(curve.getB());
         ECFieldElement beta = alpha.sqrt();
         // If we can't find a sqrt we haven't got a point on the curve - invalid inputs.
         if (beta == null)
             throw new IllegalArgumentException("Invalid point compression");
-        if (beta.toBigInteger().testBit(0) == yBit) {
-            return new ECPoint.Fp(curve, x, beta, true);
-        } else {
-            ECFieldElement.Fp y = new ECFieldElement.Fp(curve.getQ(), curve.getQ().subtract(beta.toBigInteger()));
-            return new ECPoint.Fp(curve, x, y, true);
-        }
+        if (beta.toBigInteger().testBit(0) != yBit)
+            beta = beta.negate();
+        return curve.createPoint(x.toBigInteger(), beta.toBigInteger());
     }
 
     /**
@@ -0,0 +1,123 @@
+package core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * <p>Table driven hex encoding and decoding. Encoding writes lower case digits into a char[], an ASCII byte[], any
+ * {@link Appendable} or an {@link OutputStream}; decoding accepts either case and writes into a buffer the caller
+ * supplies. Both can reverse the byte order on the way, which is how NEO displays hashes (see
+ * {@link UInt256#toString()}).</p>
+ *
+ * <p>Decoding reports bad input by its return value rather than by exception, so hex from the network can be checked
+ * at the cost of a comparison.</p>
+ */
+public class HexCodec {
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    // Both digits of every byte value, so encoding a byte is two table reads and no arithmetic on the digits.
+    private static final char[] PAIRS = new char[512];
+    // Value of each ASCII hex digit, -1 for every other character below 128.
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            PAIRS[2 * i] = DIGITS[i >>> 4];
+            PAIRS[2 * i + 1] = DIGITS[i & 0xF];
+        }
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++)
+            VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    /** Returns {@code in} as lower case hex. */
+    public static String encode(byte[] in) {
+        return encode(in, 0, in.length, false);
+    }
+
+    /** Returns {@code in[offset, offset + length)} as lower case hex, last byte first if {@code reversed}. */
+    public static String encode(byte[] in, int offset, int length, boolean reversed) {
+        char[] chars = new char[length * 2];
+        encode(in, offset, length, chars, 0, reversed);
+        return new String(chars);
+    }
+
+    /**
+     * Writes {@code in[offset, offset + length)} as hex to {@code out} at {@code outOffset}, last byte first if
+     * {@code reversed}.
+     *
+     * @return the number of chars written, {@code 2 * length}.
+     */
+    public static int encode(byte[] in, int offset, int length, char[] out, int outOffset, boolean reversed) {
+        for (int i = 0; i < length; i++) {
+            int b = (in[reversed ? offset + length - 1 - i : offset + i] & 0xFF) << 1;
+            out[outOffset++] = PAIRS[b];
+            out[outOffset++] = PAIRS[b + 1];
+        }
+        return length * 2;
+    }
+
+    /** Same as {@link #encode(byte[], int, int, char[], int, boolean)}, writing ASCII digits into a byte[]. */
+    public static int encode(byte[] in, int offset, int length, byte[] out, int outOffset, boolean reversed) {
+        for (int i = 0; i < length; i++) {
+            int b = (in[reversed ? offset + length - 1 - i : offset + i] & 0xFF) << 1;
+            out[outOffset++] = (byte) PAIRS[b];
+            out[outOffset++] = (byte) PAIRS[b + 1];
+        }
+        return length * 2;
+    }
+
+    /** Appends {@code in[offset, offset + length)} as hex to {@code out}. */
+    public static void encode(byte[] in, int offset, int length, Appendable out) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            int b = (in[i] & 0xFF) << 1;
+            out.append(PAIRS[b]).append(PAIRS[b + 1]);
+        }
+    }
+
+    /** Writes {@code in[offset, offset + length)} to {@code out} as ASCII hex, in blocks through a pooled buffer. */
+    public static void encode(byte[] in, int offset, int length, OutputStream out) throws IOException {
+        try (BufferPool.Lease lease = BufferPool.lease(Math.min(length * 2, 4096))) {
+            byte[] chunk = lease.array();
+            int step = chunk.length / 2;
+            for (int i = 0; i < length; i += step) {
+                int n = Math.min(step, length - i);
+                out.write(chunk, 0, encode(in, offset + i, n, chunk, 0, false));
+            }
+        }
+    }
+
+    /**
+     * Decodes the hex digits in {@code hex[start, end)}, of either case, into {@code out} at {@code outOffset}. If
+     * {@code reversed} the last pair of digits becomes the first byte.
+     *
+     * @return the number of bytes written, or -1 if the range has an odd length, holds anything other than hex
+     * digits or does not fit in {@code out}. What has been written to {@code out} by then is unspecified.
+     */
+    public static int decode(CharSequence hex, int start, int end, byte[] out, int outOffset, boolean reversed) {
+        int length = (end - start) / 2;
+        if (start < 0 || end > hex.length() || ((end - start) & 1) != 0 || length < 0 || outOffset < 0
+                || outOffset > out.length - length)
+            return -1;
+        int bad = 0;
+        for (int i = 0; i < length; i++) {
+            char c1 = hex.charAt(start + 2 * i);
+            char c2 = hex.charAt(start + 2 * i + 1);
+            int hi = c1 < 128 ? VALUES[c1] : -1;
+            int lo = c2 < 128 ? VALUES[c2] : -1;
+            bad |= hi | lo;
+            out[reversed ? outOffset + length - 1 - i : outOffset + i] = (byte) (hi << 4 | lo);
+        }
+        return bad < 0 ? -1 : length;
+    }
+
+    /** Decodes a whole string of hex digits, or returns null if it is not one. */
+    public static byte[] decode(CharSequence hex) {
+        byte[] out = new byte[hex.length() / 2];
+        return decode(hex, 0, hex.length(), out, 0, false) < 0 ? null : out;
+    }
+}
@@ -0,0 +1,159 @@
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Reads NEO's binary format, as written by {@link NeoBinaryWriter}, from a {@link ByteBuffer}. Every read checks
+ * that enough bytes remain, and every count or length is checked against what remains before anything is allocated
+ * for it, so malformed data fails with {@link IllegalArgumentException} rather than an out of memory error.</p>
+ *
+ * <p>It can also read straight from a {@link ByteArrayInputStream}, taking from the stream only the bytes each read
+ * needs, so the stream ends up just past what was read.</p>
+ */
+public final class NeoBinaryReader {
+    private final ByteBuffer buf;
+    // The stream being read, or null when reading a buffer. Fixed size values are copied through buf first.
+    private final ByteArrayInputStream in;
+    private int consumed;
+
+    /** Reads from {@code buf}'s position, switching the buffer to little endian order. */
+    public NeoBinaryReader(ByteBuffer buf) {
+        this.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+        this.in = null;
+    }
+
+    /** Reads from the stream's current position. The stream's mark is left alone. */
+    public NeoBinaryReader(ByteArrayInputStream in) {
+        this.buf = ByteBuffer.allocate(UInt256.LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        this.buf.limit(0);
+        this.in = in;
+    }
+
+    public NeoBinaryReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * The buffer being read, positioned at the next byte to read.
+     *
+     * @throws IllegalStateException if this reader reads a stream.
+     */
+    public ByteBuffer buffer() {
+        if (in != null)
+            throw new IllegalStateException("reading a stream, not a buffer");
+        return buf;
+    }
+
+    /** The number of bytes read so far: the buffer's position, or the bytes taken from the stream. */
+    public int position() {
+        return in != null ? consumed : buf.position();
+    }
+
+    public int remaining() {
+        return in != null ? in.available() : buf.remaining();
+    }
+
+    public byte readByte() {
+        return take(1).get();
+    }
+
+    public int readUInt16LE() {
+        return take(2).getShort() & 0xFFFF;
+    }
+
+    public short readInt16LE() {
+        return take(2).getShort();
+    }
+
+    public int readInt32LE() {
+        return take(4).getInt();
+    }
+
+    public long readUInt32LE() {
+        return take(4).getInt() & 0xFFFFFFFFL;
+    }
+
+    public long readInt64LE() {
+        return take(8).getLong();
+    }
+
+    /** Reads an unsigned var int, see {@link VarInt}. Values of 2^63 and above come back negative. */
+    public long readVarInt() {
+        int first = readByte() & 0xFF;
+        if (first < 253)
+            return first;
+        else if (first == 253)
+            return readUInt16LE();
+        else if (first == 254)
+            return readUInt32LE();
+        return readInt64LE();
+    }
+
+    /**
+     * Reads a var int count of elements that each take at least {@code minElementSize} bytes, and checks that that
+     * many could fit in what is left of the buffer.
+     */
+    public int readLength(int minElementSize) {
+        long count = readVarInt();
+        if (count < 0 || count > remaining() / minElementSize)
+            throw new IllegalArgumentException("runtime error: length " + count + " exceeds remaining data");
+        return (int) count;
+    }
+
+    public byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = new byte[length];
+        readBytes(bytes, 0, length);
+        return bytes;
+    }
+
+    public void readBytes(byte[] dst, int offset, int length) {
+        require(length);
+        if (in != null) {
+            consumed += in.read(dst, offset, length);
+        } else {
+            buf.get(dst, offset, length);
+        }
+    }
+
+    /** Reads a var int length and then that many bytes. */
+    public byte[] readVarBytes() {
+        return readBytes(readLength(1));
+    }
+
+    public void skip(int length) {
+        require(length);
+        if (in != null) {
+            consumed += (int) in.skip(length);
+        } else {
+            buf.position(buf.position() + length);
+        }
+    }
+
+    public UInt256 readUInt256() {
+        return UInt256.read(take(UInt256.LENGTH));
+    }
+
+    public UInt160 readUInt160() {
+        return UInt160.read(take(UInt160.LENGTH));
+    }
+
+    /** Throws unless at least {@code length} bytes remain. */
+    public void require(int length) {
+        if (length < 0 || remaining() < length)
+            throw new IllegalArgumentException("runtime error: data truncated");
+    }
+
+    // Checks that length bytes remain and returns buf positioned at them, copying them from the stream if there is one.
+    private ByteBuffer take(int length) {
+        require(length);
+        if (in != null) {
+            buf.clear();
+            consumed += in.read(buf.array(), 0, length);
+            buf.limit(length);
+        }
+        return buf;
+    }
+}
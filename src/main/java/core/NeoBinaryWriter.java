@@ -0,0 +1,167 @@
+package core;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>Writes NEO's binary format: little endian integers, var ints and var length byte strings. Values go straight into
+ * a {@link ByteBuffer}, so writing a field allocates nothing, unlike building a {@link VarInt} or a small array for
+ * each one.</p>
+ *
+ * <p>A writer either fills a buffer it is given, which never grows, or owns a heap buffer that grows as needed.</p>
+ */
+public final class NeoBinaryWriter {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private static final ThreadLocal<NeoBinaryWriter> local = new ThreadLocal<NeoBinaryWriter>() {
+        @Override
+        protected NeoBinaryWriter initialValue() {
+            return new NeoBinaryWriter(EMPTY);
+        }
+    };
+
+    private ByteBuffer buf;
+    private final boolean growable;
+
+    /**
+     * Writes into {@code buf} from its position, switching the buffer to little endian order. A write that does not
+     * fit throws {@link BufferOverflowException}.
+     */
+    public NeoBinaryWriter(ByteBuffer buf) {
+        this.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+        this.growable = false;
+    }
+
+    /** Writes into a heap buffer of the given initial capacity that grows as needed. See {@link #toByteArray()}. */
+    public NeoBinaryWriter(int initialCapacity) {
+        checkArgument(initialCapacity >= 0, "initialCapacity must not be negative");
+        this.buf = ByteBuffer.allocate(initialCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        this.growable = true;
+    }
+
+    /**
+     * Returns the calling thread's writer, set to write into {@code buf} as {@link #NeoBinaryWriter(ByteBuffer)}
+     * would. Saves allocating a writer on hot paths; it is only valid until the thread next calls this method.
+     * Call {@link #release()} when done, so the thread does not keep the buffer reachable.
+     */
+    public static NeoBinaryWriter get(ByteBuffer buf) {
+        NeoBinaryWriter writer = local.get();
+        writer.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+        return writer;
+    }
+
+    /**
+     * Drops the writer's buffer, so a writer from {@link #get(ByteBuffer)} no longer holds on to a caller's buffer,
+     * possibly a large leased, direct or mapped one, until the thread's next call. Writes after this overflow.
+     */
+    public void release() {
+        this.buf = EMPTY;
+    }
+
+    /** The buffer being written, positioned after the last byte written. */
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    public int position() {
+        return buf.position();
+    }
+
+    public NeoBinaryWriter writeByte(int value) {
+        ensure(1);
+        buf.put((byte) value);
+        return this;
+    }
+
+    public NeoBinaryWriter write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    public NeoBinaryWriter write(byte[] bytes, int offset, int length) {
+        ensure(length);
+        buf.put(bytes, offset, length);
+        return this;
+    }
+
+    /** Writes the low 16 bits of {@code value}. */
+    public NeoBinaryWriter writeUInt16LE(int value) {
+        ensure(2);
+        buf.putShort((short) value);
+        return this;
+    }
+
+    public NeoBinaryWriter writeInt32LE(int value) {
+        ensure(4);
+        buf.putInt(value);
+        return this;
+    }
+
+    /** Writes the low 32 bits of {@code value}. */
+    public NeoBinaryWriter writeUInt32LE(long value) {
+        ensure(4);
+        buf.putInt((int) value);
+        return this;
+    }
+
+    public NeoBinaryWriter writeInt64LE(long value) {
+        ensure(8);
+        buf.putLong(value);
+        return this;
+    }
+
+    /** Writes {@code value} as an unsigned var int, see {@link VarInt}. */
+    public NeoBinaryWriter writeVarInt(long value) {
+        ensure(VarInt.sizeOf(value));
+        VarInt.write(value, buf);
+        return this;
+    }
+
+    /** Writes the length of {@code bytes} as a var int, then the bytes. */
+    public NeoBinaryWriter writeVarBytes(byte[] bytes) {
+        return writeVarInt(bytes.length).write(bytes);
+    }
+
+    public NeoBinaryWriter writeUInt256(UInt256 value) {
+        ensure(UInt256.LENGTH);
+        value.write(buf);
+        return this;
+    }
+
+    public NeoBinaryWriter writeUInt160(UInt160 value) {
+        ensure(UInt160.LENGTH);
+        value.write(buf);
+        return this;
+    }
+
+    /** Returns the number of bytes {@link #writeVarBytes(byte[])} takes for {@code length} bytes. */
+    public static int sizeOfVarBytes(int length) {
+        return VarInt.sizeOf(length) + length;
+    }
+
+    /**
+     * Returns the bytes written so far. A growing writer that has filled its buffer exactly returns the buffer's own
+     * array instead of a copy; it is never written to again.
+     */
+    public byte[] toByteArray() {
+        if (growable && buf.position() == buf.capacity())
+            return buf.array();
+        byte[] bytes = new byte[buf.position()];
+        ByteBuffer src = buf.duplicate();
+        src.flip();
+        src.get(bytes);
+        return bytes;
+    }
+
+    private void ensure(int length) {
+        if (growable && buf.remaining() < length) {
+            int capacity = Math.max(buf.capacity() << 1, buf.position() + length);
+            ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            buf.flip();
+            grown.put(buf);
+            buf = grown;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package core;
+
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A bounded pool of precomputed ECDSA nonces for use with {@link ECKey#setNoncePool(NoncePool)}.</p>
+ *
+ * <p>Almost all the work in a signature is picking k and computing k<sup>-1</sup> and r = (k*G).x, and none of it
+ * depends on the message. The pool does that work ahead of time on a background thread, in batches. Each batch of
+ * points is converted to affine form with one shared field inversion, and each batch of k values is inverted mod n
+ * with one shared modular inversion (Montgomery's trick). Signing with a pooled nonce is then
+ * s = k<sup>-1</sup>(e + dr) mod n: two multiplications and an addition.</p>
+ *
+ * <p>Whenever a nonce is taken and the pool holds no more than {@code refillThreshold} of them, a refill is scheduled
+ * that tops the pool back up to its capacity. Each nonce leaves the pool exactly once, through {@link #poll()}, and is
+ * never put back, so no two signatures share a k. When the pool is empty, {@link #poll()} returns null and the key
+ * falls back to computing its nonce inline.</p>
+ */
+public class NoncePool {
+    /** Number of nonces generated per shared inversion. */
+    private static final int BATCH_SIZE = 64;
+
+    /** A precomputed nonce: r = (k*G).x mod n and k<sup>-1</sup> mod n. k itself is not kept. */
+    static final class Nonce {
+        final BigInteger kInv;
+        final BigInteger r;
+
+        Nonce(BigInteger kInv, BigInteger r) {
+            this.kInv = kInv;
+            this.r = r;
+        }
+    }
+
+    private final ArrayBlockingQueue<Nonce> ring;
+    private final int refillThreshold;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    /**
+     * Creates a pool that refills itself on a private low-priority daemon thread. The first fill starts right away.
+     *
+     * @param capacity        the most nonces held at once.
+     * @param refillThreshold a refill is triggered once no more than this many are left.
+     */
+    public NoncePool(int capacity, int refillThreshold) {
+        this(capacity, refillThreshold, null);
+    }
+
+    /**
+     * Creates a pool that runs its refills on the given executor. The first fill is submitted right away.
+     *
+     * @param capacity        the most nonces held at once.
+     * @param refillThreshold a refill is triggered once no more than this many are left.
+     * @param executor        runs the refills. If null, a private low-priority daemon thread is used.
+     */
+    public NoncePool(int capacity, int refillThreshold, Executor executor) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(refillThreshold >= 0 && refillThreshold < capacity, "refillThreshold must be in [0, capacity)");
+        this.ring = new ArrayBlockingQueue<Nonce>(capacity);
+        this.refillThreshold = refillThreshold;
+        if (executor == null) {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "NoncePool refill");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+        scheduleRefill();
+    }
+
+    /**
+     * Removes and returns one nonce, or null if the pool is empty. A nonce returned here is never handed out again.
+     */
+    Nonce poll() {
+        Nonce nonce = ring.poll();
+        if (ring.size() <= refillThreshold)
+            scheduleRefill();
+        return nonce;
+    }
+
+    /** Returns the number of nonces ready to use. */
+    public int size() {
+        return ring.size();
+    }
+
+    /** Returns the most nonces the pool holds at once. */
+    public int getCapacity() {
+        return ring.size() + ring.remainingCapacity();
+    }
+
+    public int getRefillThreshold() {
+        return refillThreshold;
+    }
+
+    /**
+     * Fills the pool to capacity on the calling thread. Useful to warm the pool before a burst of signing instead of
+     * waiting for the background refill.
+     */
+    public void fill() {
+        while (ring.remainingCapacity() > 0) {
+            if (!offerBatch(Math.min(BATCH_SIZE, ring.remainingCapacity())))
+                break;
+        }
+    }
+
+    /** Stops the private refill thread, if this pool created one. Nonces already in the pool stay usable. */
+    public void shutdown() {
+        if (ownedExecutor != null)
+            ownedExecutor.shutdown();
+    }
+
+    private void scheduleRefill() {
+        if (!refilling.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        fill();
+                    } finally {
+                        refilling.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected, most likely because the executor was shut down. Signing falls back to inline nonces.
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * Generates {@code count} nonces with one field inversion and one inversion mod n, and offers them to the ring.
+     * Returns false if the ring filled up before all of them were added.
+     */
+    private boolean offerBatch(int count) {
+        BigInteger n = ECKey.getCurveOrder();
+        BigInteger[] ks = new BigInteger[count];
+        ECPoint[] points = new ECPoint[count];
+        for (int i = 0; i < count; i++) {
+            ks[i] = ECKey.randomK(n);
+            points[i] = ECKey.multiplyBase(ks[i]);
+        }
+        // One shared inversion of the Z coordinates takes every point to affine form.
+        points[0].getCurve().normalizeAll(points);
+
+        // Montgomery's trick for the k values: prefix products, one modInverse, then walk back.
+        BigInteger[] prefix = new BigInteger[count];
+        prefix[0] = ks[0];
+        for (int i = 1; i < count; i++)
+            prefix[i] = prefix[i - 1].multiply(ks[i]).mod(n);
+        BigInteger inv = prefix[count - 1].modInverse(n);
+        BigInteger[] kInvs = new BigInteger[count];
+        for (int i = count - 1; i > 0; i--) {
+            kInvs[i] = inv.multiply(prefix[i - 1]).mod(n);
+            inv = inv.multiply(ks[i]).mod(n);
+        }
+        kInvs[0] = inv;
+
+        for (int i = 0; i < count; i++) {
+            BigInteger r = points[i].getAffineXCoord().toBigInteger().mod(n);
+            if (r.signum() == 0)
+                continue;
+            if (!ring.offer(new Nonce(kInvs[i], r)))
+                return false;
+        }
+        return true;
+    }
+}
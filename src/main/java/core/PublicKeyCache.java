@@ -0,0 +1,77 @@
+package core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.WNafUtil;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>A bounded, concurrent cache of decoded public keys, used by the verification methods of {@link ECKey}.</p>
+ *
+ * <p>Decoding a compressed key costs a modular square root, and multiplying by it needs a wNAF table of its small
+ * multiples. Wallets tend to verify against the same few keys over and over, so both are kept here: a cached point
+ * carries its wNAF table, which Bouncy Castle then reuses in every multiplication by that point.</p>
+ *
+ * <p>Entries are evicted roughly least-recently-used once {@link #getMaximumSize()} is reached. Hit and miss counts
+ * are available from {@link #stats()} for tuning the size.</p>
+ */
+public class PublicKeyCache {
+    /** Default number of keys kept. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private static volatile long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private static volatile Cache<ByteBuffer, ECPoint> cache = build(DEFAULT_MAXIMUM_SIZE);
+
+    private static Cache<ByteBuffer, ECPoint> build(long size) {
+        return CacheBuilder.newBuilder().maximumSize(size).recordStats().build();
+    }
+
+    /**
+     * Returns the decoded form of the given encoded public key, from the cache if possible.
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid point on the curve.
+     */
+    static ECPoint decode(ECCurve curve, byte[] pub, int wnafWidth) {
+        Cache<ByteBuffer, ECPoint> c = cache;
+        ECPoint point = c.getIfPresent(ByteBuffer.wrap(pub));
+        if (point == null) {
+            point = curve.decodePoint(pub);
+            WNafUtil.precompute(point, wnafWidth, true);
+            // Key on a copy so later changes to the caller's array can't corrupt the entry.
+            c.put(ByteBuffer.wrap(pub.clone()), point);
+        }
+        return point;
+    }
+
+    /** Returns hit, miss and eviction counts since the cache was created or last resized. */
+    public static CacheStats stats() {
+        return cache.stats();
+    }
+
+    /** Returns the number of keys currently cached. */
+    public static long size() {
+        return cache.size();
+    }
+
+    public static long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** Replaces the cache with an empty one holding at most {@code size} keys. Statistics start again from zero. */
+    public static synchronized void setMaximumSize(long size) {
+        checkArgument(size >= 0, "size must not be negative");
+        maximumSize = size;
+        cache = build(size);
+    }
+
+    /** Drops every cached key. Statistics are kept. */
+    public static void clear() {
+        cache.invalidateAll();
+    }
+}
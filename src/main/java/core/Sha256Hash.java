@@ -23,8 +23,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -58,12 +56,7 @@ public class Sha256Hash implements Serializable {
      * Calculates the (one-time) hash of contents and returns it as a new wrapped hash.
      */
     public static Sha256Hash create(byte[] contents) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            return new Sha256Hash(digest.digest(contents));
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);  // Cannot happen.
-        }
+        return new Sha256Hash(Utils.singleDigest(contents, 0, contents.length));
     }
 
     /**
@@ -123,6 +116,16 @@ public class Sha256Hash implements Serializable {
         return bytes;
     }
 
+    /** Returns the hash as a {@link UInt256}, the compact form to use as a map or index key. */
+    public UInt256 toUInt256() {
+        return UInt256.fromBytes(bytes);
+    }
+
+    /** Wraps the bytes of the given value. */
+    public static Sha256Hash of(UInt256 value) {
+        return new Sha256Hash(value.toByteArray());
+    }
+
     public Sha256Hash duplicate() {
         return new Sha256Hash(bytes);
     }
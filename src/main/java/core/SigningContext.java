@@ -0,0 +1,83 @@
+package core;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+
+import java.math.BigInteger;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>Per-thread state for the signing hot path. Each thread gets one context holding a SHA-256 digest, an RFC 6979
+ * nonce calculator and a hash buffer, all reset and reused on every call instead of being allocated. Signatures are
+ * written as NEO's 64 byte r||s straight into a buffer the caller supplies.</p>
+ *
+ * <p>A context must only be used by the thread that got it from {@link #get()}.</p>
+ */
+public final class SigningContext {
+    private static final ThreadLocal<SigningContext> current = new ThreadLocal<SigningContext>() {
+        @Override
+        protected SigningContext initialValue() {
+            return new SigningContext();
+        }
+    };
+
+    private final MessageDigest sha256;
+    private final HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+    private final byte[] hash = new byte[32];
+
+    private SigningContext() {
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);  // Cannot happen.
+        }
+    }
+
+    /** Returns the calling thread's context. */
+    public static SigningContext get() {
+        return current.get();
+    }
+
+    /**
+     * Hashes {@code message[offset, offset + length)} with SHA-256 and signs the hash with {@code key}, writing the
+     * 64 byte r||s signature to {@code out[outOffset, outOffset + 64)}.
+     */
+    public void signMessage(ECKey key, byte[] message, int offset, int length, byte[] out, int outOffset) {
+        sha256.reset();
+        sha256.update(message, offset, length);
+        try {
+            sha256.digest(hash, 0, 32);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);  // Cannot happen, the buffer is large enough.
+        }
+        signHash(key, out, outOffset);
+    }
+
+    /** Signs an already computed hash, writing the 64 byte r||s signature to {@code out[outOffset, outOffset + 64)}. */
+    public void sign(ECKey key, Sha256Hash input, byte[] out, int outOffset) {
+        System.arraycopy(input.getBytes(), 0, hash, 0, 32);
+        signHash(key, out, outOffset);
+    }
+
+    private void signHash(ECKey key, byte[] out, int outOffset) {
+        ECKey.ECDSASignature signature = key.sign(hash, kCalculator);
+        writeUnsigned32(signature.r, out, outOffset);
+        writeUnsigned32(signature.s, out, outOffset + 32);
+    }
+
+    /**
+     * Writes a non-negative value below 2^256 as 32 unsigned big endian bytes, left padded with zeros. Reads the
+     * value bit by bit through {@link BigInteger#testBit}, which allocates nothing, unlike {@code toByteArray()}.
+     */
+    private static void writeUnsigned32(BigInteger value, byte[] out, int offset) {
+        for (int i = 0; i < 32; i++) {
+            int bit = (31 - i) * 8;
+            int b = 0;
+            for (int j = 7; j >= 0; j--)
+                b = (b << 1) | (value.testBit(bit + j) ? 1 : 0);
+            out[offset + i] = (byte) b;
+        }
+    }
+}
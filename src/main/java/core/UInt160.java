@@ -0,0 +1,128 @@
+package core;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>An immutable 160 bit value, such as a script hash, held as two longs and an int instead of a byte[]. Like
+ * {@link UInt256} it needs no defensive copies, compares in a fixed number of steps and carries its hash code.</p>
+ *
+ * <p>The bytes are in NEO's wire order, which is little endian: {@link #toByteArray()} returns what is serialized
+ * in a transaction and hashed into an address, and {@link #toString()} returns the reversed hex that explorers and
+ * RPC display. Ordering is the one NEO uses, comparing the values as unsigned little endian numbers.</p>
+ */
+public final class UInt160 implements Comparable<UInt160>, Serializable {
+    /** Length of the value in bytes. */
+    public static final int LENGTH = 20;
+
+    public static final UInt160 ZERO = new UInt160(0, 0, 0);
+
+    // w0 holds wire bytes 0-7, w1 bytes 8-15 and w2 bytes 16-19, each little endian.
+    private final long w0, w1;
+    private final int w2;
+    private final int hash;
+
+    private UInt160(long w0, long w1, int w2) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        long h = w0 ^ w1;
+        this.hash = (int) (h ^ (h >>> 32)) ^ w2;
+    }
+
+    /** Reads a value from a 20 byte array in wire order. The array is not kept. */
+    public static UInt160 fromBytes(byte[] bytes) {
+        checkArgument(bytes.length == LENGTH, "UInt160 needs 20 bytes");
+        return read(bytes, 0);
+    }
+
+    /** Reads a value from {@code bytes[offset, offset + 20)} in wire order. */
+    public static UInt160 read(byte[] bytes, int offset) {
+        return new UInt160(Utils.readInt64(bytes, offset), Utils.readInt64(bytes, offset + 8),
+                (int) Utils.readUint32(bytes, offset + 16));
+    }
+
+    /** Reads a value in wire order from the buffer's position, advancing it by 20 bytes. */
+    public static UInt160 read(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return new UInt160(buffer.getLong(), buffer.getLong(), buffer.getInt());
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /** Reads a value in wire order from {@code buffer[index, index + 20)}, leaving its position alone. */
+    public static UInt160 read(ByteBuffer buffer, int index) {
+        long w0 = buffer.getLong(index), w1 = buffer.getLong(index + 8);
+        int w2 = buffer.getInt(index + 16);
+        if (buffer.order() == ByteOrder.BIG_ENDIAN)
+            return new UInt160(Long.reverseBytes(w0), Long.reverseBytes(w1), Integer.reverseBytes(w2));
+        return new UInt160(w0, w1, w2);
+    }
+
+    /** Parses the displayed (reversed) hex form produced by {@link #toString()}, with or without a 0x prefix. */
+    public static UInt160 parse(String hex) {
+        int start = hex.startsWith("0x") ? 2 : 0;
+        byte[] bytes = new byte[LENGTH];
+        checkArgument(hex.length() - start == LENGTH * 2
+                && HexCodec.decode(hex, start, hex.length(), bytes, 0, true) == LENGTH, "UInt160 needs 40 hex digits");
+        return read(bytes, 0);
+    }
+
+    /** Writes the value to {@code out[offset, offset + 20)} in wire order. */
+    public void write(byte[] out, int offset) {
+        Utils.int64ToByteArrayLE(w0, out, offset);
+        Utils.int64ToByteArrayLE(w1, out, offset + 8);
+        Utils.uint32ToByteArrayLE(w2, out, offset + 16);
+    }
+
+    /** Writes the value in wire order at the buffer's position, advancing it by 20 bytes. */
+    public void write(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            buffer.putLong(w0).putLong(w1).putInt(w2);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /** Returns a new array with the value in wire order. */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[LENGTH];
+        write(bytes, 0);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof UInt160)) return false;
+        UInt160 o = (UInt160) other;
+        return ((w0 ^ o.w0) | (w1 ^ o.w1) | (w2 ^ o.w2)) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    public int compareTo(UInt160 other) {
+        int c = Integer.compareUnsigned(w2, other.w2);
+        if (c != 0) return c;
+        c = Long.compareUnsigned(w1, other.w1);
+        if (c != 0) return c;
+        return Long.compareUnsigned(w0, other.w0);
+    }
+
+    /** Returns the value as NEO displays it: the wire bytes reversed, in hex. */
+    @Override
+    public String toString() {
+        return HexCodec.encode(toByteArray(), 0, LENGTH, true);
+    }
+}
@@ -0,0 +1,133 @@
+package core;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>An immutable 256 bit value, such as a transaction id or an asset id, held as four longs instead of a byte[]. It
+ * needs no defensive copies, compares in a fixed number of steps and carries its hash code, which makes it a cheap key
+ * for large maps and sets.</p>
+ *
+ * <p>The bytes are in NEO's wire order, which is little endian: {@link #toByteArray()} returns what is serialized
+ * in a transaction, and {@link #toString()} returns the reversed hex that explorers and RPC display. Ordering is the
+ * one NEO uses, comparing the values as unsigned little endian numbers.</p>
+ */
+public final class UInt256 implements Comparable<UInt256>, Serializable {
+    /** Length of the value in bytes. */
+    public static final int LENGTH = 32;
+
+    public static final UInt256 ZERO = new UInt256(0, 0, 0, 0);
+
+    // w0 holds wire bytes 0-7, w3 holds bytes 24-31, each little endian.
+    private final long w0, w1, w2, w3;
+    private final int hash;
+
+    private UInt256(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        long h = w0 ^ w1 ^ w2 ^ w3;
+        this.hash = (int) (h ^ (h >>> 32));
+    }
+
+    /** Reads a value from a 32 byte array in wire order. The array is not kept. */
+    public static UInt256 fromBytes(byte[] bytes) {
+        checkArgument(bytes.length == LENGTH, "UInt256 needs 32 bytes");
+        return read(bytes, 0);
+    }
+
+    /** Reads a value from {@code bytes[offset, offset + 32)} in wire order. */
+    public static UInt256 read(byte[] bytes, int offset) {
+        return new UInt256(Utils.readInt64(bytes, offset), Utils.readInt64(bytes, offset + 8),
+                Utils.readInt64(bytes, offset + 16), Utils.readInt64(bytes, offset + 24));
+    }
+
+    /** Reads a value in wire order from the buffer's position, advancing it by 32 bytes. */
+    public static UInt256 read(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return new UInt256(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /** Reads a value in wire order from {@code buffer[index, index + 32)}, leaving its position alone. */
+    public static UInt256 read(ByteBuffer buffer, int index) {
+        long w0 = buffer.getLong(index), w1 = buffer.getLong(index + 8);
+        long w2 = buffer.getLong(index + 16), w3 = buffer.getLong(index + 24);
+        if (buffer.order() == ByteOrder.BIG_ENDIAN)
+            return new UInt256(Long.reverseBytes(w0), Long.reverseBytes(w1), Long.reverseBytes(w2),
+                    Long.reverseBytes(w3));
+        return new UInt256(w0, w1, w2, w3);
+    }
+
+    /** Parses the displayed (reversed) hex form produced by {@link #toString()}, with or without a 0x prefix. */
+    public static UInt256 parse(String hex) {
+        int start = hex.startsWith("0x") ? 2 : 0;
+        byte[] bytes = new byte[LENGTH];
+        checkArgument(hex.length() - start == LENGTH * 2
+                && HexCodec.decode(hex, start, hex.length(), bytes, 0, true) == LENGTH, "UInt256 needs 64 hex digits");
+        return read(bytes, 0);
+    }
+
+    /** Writes the value to {@code out[offset, offset + 32)} in wire order. */
+    public void write(byte[] out, int offset) {
+        Utils.int64ToByteArrayLE(w0, out, offset);
+        Utils.int64ToByteArrayLE(w1, out, offset + 8);
+        Utils.int64ToByteArrayLE(w2, out, offset + 16);
+        Utils.int64ToByteArrayLE(w3, out, offset + 24);
+    }
+
+    /** Writes the value in wire order at the buffer's position, advancing it by 32 bytes. */
+    public void write(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            buffer.putLong(w0).putLong(w1).putLong(w2).putLong(w3);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /** Returns a new array with the value in wire order. */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[LENGTH];
+        write(bytes, 0);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof UInt256)) return false;
+        UInt256 o = (UInt256) other;
+        return ((w0 ^ o.w0) | (w1 ^ o.w1) | (w2 ^ o.w2) | (w3 ^ o.w3)) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    public int compareTo(UInt256 other) {
+        int c = Long.compareUnsigned(w3, other.w3);
+        if (c != 0) return c;
+        c = Long.compareUnsigned(w2, other.w2);
+        if (c != 0) return c;
+        c = Long.compareUnsigned(w1, other.w1);
+        if (c != 0) return c;
+        return Long.compareUnsigned(w0, other.w0);
+    }
+
+    /** Returns the value as NEO displays it: the wire bytes reversed, in hex. */
+    @Override
+    public String toString() {
+        return HexCodec.encode(toByteArray(), 0, LENGTH, true);
+    }
+}
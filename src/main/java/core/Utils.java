@@ -15,13 +15,14 @@ package core; /**
  */
 
 
-import org.bouncycastle.crypto.digests.RIPEMD160Digest;
 import org.bouncycastle.util.encoders.Hex;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
@@ -33,14 +34,18 @@ import static com.google.common.base.Preconditions.checkArgument;
  * To enable debug logging from the library, run with -Dlitecoinj.logging=true on your command line.
  */
 public class Utils {
-    private static final MessageDigest digest;
-    static {
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);  // Can't happen.
+    // One SHA-256 instance per thread. A single shared, synchronized instance serialized every Base58Check decode in
+    // the JVM on one lock.
+    private static final ThreadLocal<MessageDigest> digest = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);  // Can't happen.
+            }
         }
-    }
+    };
 
     /** The string that prefixes all text messages signed using Litecoin keys. */
     public static final String LITECOIN_SIGNED_MESSAGE_HEADER = "Litecoin Signed Message:\n";
@@ -121,6 +126,17 @@ public class Utils {
         out[offset + 3] = (byte) (0xFF & (val >> 24));
     }
 
+    public static void int64ToByteArrayLE(long val, byte[] out, int offset) {
+        out[offset + 0] = (byte) (0xFF & (val >> 0));
+        out[offset + 1] = (byte) (0xFF & (val >> 8));
+        out[offset + 2] = (byte) (0xFF & (val >> 16));
+        out[offset + 3] = (byte) (0xFF & (val >> 24));
+        out[offset + 4] = (byte) (0xFF & (val >> 32));
+        out[offset + 5] = (byte) (0xFF & (val >> 40));
+        out[offset + 6] = (byte) (0xFF & (val >> 48));
+        out[offset + 7] = (byte) (0xFF & (val >> 56));
+    }
+
     public static void uint16ToByteArrayLE(short val, byte[] out, int offset) {
         out[offset + 0] = (byte) (0xFF & (val >> 0));
         out[offset + 1] = (byte) (0xFF & (val >> 8));
@@ -170,20 +186,49 @@ public class Utils {
      * standard procedure in Litecoin. The resulting hash is in big endian form.
      */
     public static byte[] doubleDigest(byte[] input, int offset, int length) {
-        synchronized (digest) {
-            digest.reset();
-            digest.update(input, offset, length);
-            byte[] first = digest.digest();
-            return digest.digest(first);
-        }
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input, offset, length);
+        byte[] first = digest.digest();
+        return digest.digest(first);
+    }
+
+    /**
+     * Same as {@link #doubleDigest(byte[], int, int)}, but writes the 32 byte result to {@code out[outOffset, outOffset
+     * + 32)} instead of allocating it.
+     */
+    public static void doubleDigest(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input, offset, length);
+        finishDouble(digest, out, outOffset);
     }
 
     public static byte[] singleDigest(byte[] input, int offset, int length) {
-        synchronized (digest) {
-            digest.reset();
-            digest.update(input, offset, length);
-            return digest.digest();
-        }
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input, offset, length);
+        return digest.digest();
+    }
+
+    /**
+     * Calculates SHA256 of the buffer's remaining bytes, leaving its position at its limit.
+     */
+    public static byte[] singleDigest(ByteBuffer input) {
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input);
+        return digest.digest();
+    }
+
+    /**
+     * Calculates SHA256 of the given byte range into {@code out[outOffset, outOffset + 32)}.
+     */
+    public static void singleDigest(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input, offset, length);
+        finish(digest, out, outOffset);
     }
 
     /**
@@ -191,12 +236,39 @@ public class Utils {
      */
     public static byte[] doubleDigestTwoBuffers(byte[] input1, int offset1, int length1,
                                                 byte[] input2, int offset2, int length2) {
-        synchronized (digest) {
-            digest.reset();
-            digest.update(input1, offset1, length1);
-            digest.update(input2, offset2, length2);
-            byte[] first = digest.digest();
-            return digest.digest(first);
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input1, offset1, length1);
+        digest.update(input2, offset2, length2);
+        byte[] first = digest.digest();
+        return digest.digest(first);
+    }
+
+    /**
+     * Calculates SHA256(SHA256(byte range 1 + byte range 2)) into {@code out[outOffset, outOffset + 32)}.
+     */
+    public static void doubleDigestTwoBuffers(byte[] input1, int offset1, int length1,
+                                              byte[] input2, int offset2, int length2,
+                                              byte[] out, int outOffset) {
+        MessageDigest digest = Utils.digest.get();
+        digest.reset();
+        digest.update(input1, offset1, length1);
+        digest.update(input2, offset2, length2);
+        finishDouble(digest, out, outOffset);
+    }
+
+    // Completes the first hash into the output slot, then hashes that slot again in place.
+    private static void finishDouble(MessageDigest digest, byte[] out, int outOffset) {
+        finish(digest, out, outOffset);
+        digest.update(out, outOffset, 32);
+        finish(digest, out, outOffset);
+    }
+
+    private static void finish(MessageDigest digest, byte[] out, int outOffset) {
+        try {
+            digest.digest(out, outOffset, 32);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException(e);  // Fewer than 32 bytes left in out.
         }
     }
 
@@ -211,26 +283,20 @@ public class Utils {
      * Returns the given byte array hex encoded.
      */
     public static String bytesToHexString(byte[] bytes) {
-        StringBuffer buf = new StringBuffer(bytes.length * 2);
-        for (byte b : bytes) {
-            String s = Integer.toString(0xFF & b, 16);
-            if (s.length() < 2)
-                buf.append('0');
-            buf.append(s);
-        }
-        return buf.toString();
+        return HexCodec.encode(bytes);
     }
 
+    /**
+     * Decodes a hex string. A trailing odd digit is ignored.
+     *
+     * @throws IllegalArgumentException if the string holds anything other than hex digits. Use
+     *                                  {@link HexCodec#decode(CharSequence, int, int, byte[], int, boolean)} to check
+     *                                  input without an exception.
+     */
     public static byte[] hexStringToBytes(String s) {
         byte[] baKeyword = new byte[s.length() / 2];
-        for (int i = 0; i < baKeyword.length; i++) {
-            try {
-                baKeyword[i] = (byte) (0xff & Integer.parseInt(s.substring(
-                        i * 2, i * 2 + 2), 16));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        if (HexCodec.decode(s, 0, baKeyword.length * 2, baKeyword, 0, false) < 0)
+            throw new IllegalArgumentException("runtime error: invalid hex string");
         return baKeyword;
     }
 
@@ -305,16 +371,17 @@ public class Utils {
      * Calculates RIPEMD160(SHA256(input)). This is used in core.Address calculations.
      */
     public static byte[] sha256hash160(byte[] input) {
-        try {
-            byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(input);
-            RIPEMD160Digest digest = new RIPEMD160Digest();
-            digest.update(sha256, 0, sha256.length);
-            byte[] out = new byte[20];
-            digest.doFinal(out, 0);
-            return out;
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);  // Cannot happen.
-        }
+        byte[] out = new byte[Hash160.LENGTH];
+        sha256hash160(input, 0, input.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Calculates RIPEMD160(SHA256(input[offset, offset + length))) into {@code out[outOffset, outOffset + 20)}, using
+     * the calling thread's {@link Hash160} engine.
+     */
+    public static void sha256hash160(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        Hash160.get().update(input, offset, length).doFinal(out, outOffset);
     }
 
     /**
@@ -17,6 +17,7 @@
 package core;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 
 import static core.Utils.isLessThanUnsigned;
 /**
@@ -127,6 +128,39 @@ public class VarInt {
             return 9;  // 1 marker + 8 data bytes
     }
 
+    /**
+     * Writes the given value in the same encoding as {@link #encode()} at the buffer's position, without allocating.
+     * The buffer must be in little endian order.
+     */
+    public static void write(long value, ByteBuffer buf) {
+        if (isLessThanUnsigned(value, 253)) {
+            buf.put((byte) value);
+        } else if (isLessThanUnsigned(value, 65536)) {
+            buf.put((byte) 253).putShort((short) value);
+        } else if (isLessThanUnsigned(value, 4294967296L)) {
+            buf.put((byte) 254).putInt((int) value);
+        } else {
+            buf.put((byte) 255).putLong(value);
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #write(long, ByteBuffer)} from the buffer's position. The buffer must be in
+     * little endian order.
+     *
+     * @throws java.nio.BufferUnderflowException if the buffer ends inside the value.
+     */
+    public static long read(ByteBuffer buf) {
+        int first = 0xFF & buf.get();
+        if (first < 253)
+            return first;
+        else if (first == 253)
+            return 0xFFFF & buf.getShort();
+        else if (first == 254)
+            return 0xFFFFFFFFL & buf.getInt();
+        return buf.getLong();
+    }
+
     public byte[] encode() {
         return encodeBE();
     }
@@ -0,0 +1,26 @@
+package neo;
+
+import core.ECKey;
+import core.Sha256Hash;
+
+/**
+ * Signs and verifies with {@link ECKey}'s own Bouncy Castle code. This honours the key's nonce settings
+ * ({@link ECKey#setDeterministicSigning(boolean)}, {@link ECKey#setNoncePool}) and shares its caches.
+ */
+public class BouncyCastleSignatureBackend implements SignatureBackend {
+    public byte[] sign(Sha256Hash hash, ECKey key) {
+        return Helper.sign(hash, key);
+    }
+
+    public boolean verify(Sha256Hash hash, byte[] signature, byte[] pub) {
+        if (signature == null || signature.length != 64) {
+            return false;
+        }
+        try {
+            return ECKey.neoVerify(hash.getBytes(), signature, pub);
+        } catch (IllegalArgumentException e) {
+            // Not a point on the curve.
+            return false;
+        }
+    }
+}
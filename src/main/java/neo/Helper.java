@@ -1,28 +1,41 @@
 package neo;
 
 import core.*;
-import org.bouncycastle.util.BigIntegers;
 
 import java.io.ByteArrayInputStream;
 import java.math.BigInteger;
 import java.security.*;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
-import java.security.spec.*;
-
-import sun.security.ec.ECPrivateKeyImpl;
-import sun.security.ec.ECPublicKeyImpl;
 
 public class Helper {
+    /** Name of the system property that picks the initial {@link SignatureBackend}: "bc" (the default) or "jca". */
+    public static final String SIGNATURE_BACKEND_PROPERTY = "neo.signature.backend";
+
+    private static volatile SignatureBackend signatureBackend =
+            "jca".equalsIgnoreCase(System.getProperty(SIGNATURE_BACKEND_PROPERTY))
+                    ? new JcaSignatureBackend() : new BouncyCastleSignatureBackend();
+
+    /** Returns the backend that transactions are signed and their witnesses verified with. */
+    public static SignatureBackend getSignatureBackend() {
+        return signatureBackend;
+    }
+
+    /** Switches the backend used for signing and witness verification from now on. */
+    public static void setSignatureBackend(SignatureBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("backend must not be null");
+        }
+        signatureBackend = backend;
+    }
+
+    /** Returns the script hash in the given address, or null if it is not a valid address. */
     public static byte[] getPublicKeyHashFromAddress(String encoded) {
-        Address address = null;
-        try {
-            address = new Address(encoded);
-            return address.getHash160();
-        } catch (Exception e) {
-            e.printStackTrace();
+        UInt160 hash = AddressCache.getScriptHash(encoded);
+        if (hash == null) {
+            return null;
         }
-        return null;
+        return hash.toByteArray();
     }
 
     public static byte[] getScriptHashFromScript(byte[] script) {
@@ -30,14 +43,26 @@ public class Helper {
     }
 
     public static String getAddressFromScriptHash(byte[] scriptHash) {
-        Address address = new Address(new NetworkParameters(), scriptHash);
-        return address.toString();
+        return AddressCache.getAddress(UInt160.fromBytes(scriptHash));
     }
 
     public static Address toAddress(NetworkParameters params, byte[] pubkey) {
-        byte[] script = getScriptFromPublicKey(pubkey);
-        byte[] hash160 = Utils.sha256hash160(script);
-        return new Address(params, hash160);
+        return new Address(params, getScriptHashFromPublicKey(pubkey));
+    }
+
+    /**
+     * Returns the script hash of the verification script 0x21 | pubkey | CHECKSIG for a compressed public key,
+     * hashed in place instead of building the script.
+     *
+     * @throws IllegalArgumentException if {@code pubkey} is shorter than 33 bytes.
+     */
+    public static byte[] getScriptHashFromPublicKey(byte[] pubkey) {
+        if(pubkey.length < 33) {
+            throw new IllegalArgumentException("runtime error: public key too short");
+        }
+        byte[] hash160 = new byte[Hash160.LENGTH];
+        Hash160.get().update((byte)33).update(pubkey, 0, 33).update((byte)172).doFinal(hash160, 0);
+        return hash160;
     }
 
     public static byte[] getScriptFromPublicKey(byte[] pubkey) {
@@ -48,17 +73,35 @@ public class Helper {
         return script;
     }
 
+    /**
+     * Reads a var int from the stream.
+     *
+     * @throws IllegalArgumentException if the stream ends inside it or the value does not fit in an int.
+     */
     public static int ReadVarInt(ByteArrayInputStream bais) {
-        try {
-            VarInt varInt = new VarInt(bais);
-
-            int length = (int) varInt.value;
-            return length;
-        } catch (Exception e) {
-            e.printStackTrace();
+        int first = readByte(bais);
+        long value;
+        if(first < 253) {
+            value = first;
+        } else if(first == 253) {
+            value = readByte(bais) | readByte(bais) << 8;
+        } else if(first == 254) {
+            value = (readByte(bais) | readByte(bais) << 8 | readByte(bais) << 16 | (long)readByte(bais) << 24);
+        } else {
+            throw new IllegalArgumentException("runtime error: var int too large");
+        }
+        if(value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("runtime error: var int too large");
         }
+        return (int)value;
+    }
 
-        return 0;
+    private static int readByte(ByteArrayInputStream bais) {
+        int b = bais.read();
+        if(b < 0) {
+            throw new IllegalArgumentException("runtime error: var int truncated");
+        }
+        return b;
     }
 
     public static byte[] sign(Sha256Hash sha256Hash, ECKey ecKey) {
@@ -73,15 +116,8 @@ public class Helper {
             }
         }
         */
-        ECKey.ECDSASignature ecdsaSignature = ecKey.sign(sha256Hash);
-
-        byte[] rBytes = BigIntegers.asUnsignedByteArray(32, ecdsaSignature.r);
-        byte[] sBytes = BigIntegers.asUnsignedByteArray(32, ecdsaSignature.s);
-
         byte[] signature = new byte[64];
-
-        System.arraycopy(rBytes, 0, signature, 32 - rBytes.length, rBytes.length);
-        System.arraycopy(sBytes, 0, signature, 64 - sBytes.length, sBytes.length);
+        SigningContext.get().sign(ecKey, sha256Hash, signature, 0);
 
         return signature;
     }
@@ -90,10 +126,7 @@ public class Helper {
 
         try {
             BigInteger p = ecKey.getPriv();
-            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
-            parameters.init(new ECGenParameterSpec("secp256r1"));
-            ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
-            ECPrivateKey privateKey = new ECPrivateKeyImpl(p, ecParameterSpec);
+            ECPrivateKey privateKey = JcaSignatureBackend.toPrivateKey(p);
             /*
             byte[] pubBytes = ECKey.publicKeyFromPrivate(p, false);
             byte[] sss = ECKey.publicKeyFromPrivate(p, true);
@@ -117,13 +150,7 @@ public class Helper {
         System.arraycopy(publicKeyBytes, 33, y, 0, 32);
 
         try {
-
-            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
-            parameters.init(new ECGenParameterSpec("secp256r1"));
-            ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
-
-            //ECPublicKeySpec ecPublicKeySpec = new ECPublicKeySpec(new ECPoint(new BigInteger(x), new BigInteger(y)), ecParameterSpec);
-            ECPublicKey ecPublicKey = new ECPublicKeyImpl(new ECPoint(new BigInteger(x), new BigInteger(y)), ecParameterSpec);
+            ECPublicKey ecPublicKey = JcaSignatureBackend.toPublicKey(new BigInteger(1, x), new BigInteger(1, y));
 
             return ecPublicKey;
         } catch (Exception e) {
@@ -132,20 +159,26 @@ public class Helper {
         }
     }
 
+    /**
+     * Signs the SHA-256 of {@code content} and returns the DER signature, as SHA256withECDSA would. Uses the thread's
+     * {@link JcaSignatureBackend} instance, so the key must come from the default provider, as
+     * {@link #getPrivateKey} builds it.
+     */
     public static byte[] signature(byte[] content, PrivateKey privateKey)
             throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
-        Signature signature = Signature.getInstance("SHA256withECDSA");
+        Signature signature = JcaSignatureBackend.signature();
         signature.initSign(privateKey);
-        signature.update(content);
+        signature.update(Utils.singleDigest(content, 0, content.length));
         return signature.sign();
     }
 
+    /** Checks a DER signature made by {@link #signature}, through the thread's {@link JcaSignatureBackend} instance. */
     public static boolean verify(byte[] content, byte[] sign, PublicKey publicKey)
             throws NoSuchAlgorithmException, InvalidKeyException {
-        Signature signature = Signature.getInstance("SHA256withECDSA");
+        Signature signature = JcaSignatureBackend.signature();
         signature.initVerify(publicKey);
         try {
-            signature.update(content);
+            signature.update(Utils.singleDigest(content, 0, content.length));
             return signature.verify(sign);
         } catch (SignatureException e) {
             e.printStackTrace();
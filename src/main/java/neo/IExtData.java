@@ -1,9 +1,25 @@
 package neo;
 
+import core.NeoBinaryReader;
+import core.NeoBinaryWriter;
+
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 public interface IExtData {
-    public void Serialize(Transaction tx, ByteArrayOutputStream baos);
+    public void Serialize(Transaction tx, OutputStream baos);
     public void Deserialize(Transaction tx, ByteArrayInputStream bais);
+
+    /** Returns the number of bytes {@link #serializeTo(Transaction, NeoBinaryWriter)} writes. */
+    public int getSerializedSize(Transaction tx);
+
+    /** Writes the same bytes as {@link #Serialize(Transaction, OutputStream)}. */
+    public void serializeTo(Transaction tx, NeoBinaryWriter writer);
+
+    /**
+     * Reads the fields written by {@link #serializeTo(Transaction, NeoBinaryWriter)}.
+     *
+     * @throws IllegalArgumentException if the data is truncated or malformed.
+     */
+    public void parse(Transaction tx, NeoBinaryReader reader);
 }
@@ -1,25 +1,21 @@
 package neo;
 
-import core.Utils;
-import core.VarInt;
+import core.BufferPool;
+import core.NeoBinaryReader;
+import core.NeoBinaryWriter;
 import lombok.Data;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 @Data
 public class InvokeTransData implements IExtData  {
-    public void Serialize(Transaction tx, ByteArrayOutputStream baos) {
-        int length = this.script.length;
-        VarInt varLength = new VarInt(length);
-
+    public void Serialize(Transaction tx, OutputStream baos) {
         try {
-            byte[] lenBytes = varLength.encode();
-            baos.write(lenBytes);
-            baos.write(this.script);
-
-            if(tx.getVersion() >= 1) {
-                Utils.int64ToByteStreamLE(gas.getValue(), baos);
+            int size = getSerializedSize(tx);
+            try (BufferPool.Lease lease = BufferPool.lease(size)) {
+                serializeTo(tx, new NeoBinaryWriter(lease.buffer()));
+                baos.write(lease.array(), 0, size);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -27,22 +23,32 @@ public class InvokeTransData implements IExtData  {
 
     }
 
+    public int getSerializedSize(Transaction tx) {
+        int size = NeoBinaryWriter.sizeOfVarBytes(this.script.length);
+        if(tx.getVersion() >= 1) {
+            size += 8;
+        }
+        return size;
+    }
+
+    public void serializeTo(Transaction tx, NeoBinaryWriter writer) {
+        writer.writeVarBytes(this.script);
+        if(tx.getVersion() >= 1) {
+            writer.writeInt64LE(gas.getValue());
+        }
+    }
+
+    public void parse(Transaction tx, NeoBinaryReader reader) {
+        this.script = reader.readVarBytes();
+        if(tx.getVersion() >= 1) {
+            this.gas = new Fixed8();
+            this.gas.setValue(reader.readInt64LE());
+        }
+    }
+
     public void Deserialize(Transaction tx, ByteArrayInputStream bais) {
-        VarInt varInt = null;
         try {
-            varInt = new VarInt(bais);
-
-            int length = (int) varInt.value;
-            byte[] data = new byte[length];
-            bais.read(data);
-            this.script = data;
-
-            if (tx.getVersion() >= 1) {
-                byte[] value = new byte[8];
-                bais.read(value);
-                long lvalue = Utils.readUint32(value, 0) | (Utils.readUint32(value, 4) << 32);
-                this.gas.setValue(lvalue);
-            }
+            parse(tx, new NeoBinaryReader(bais));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,146 @@
+package neo;
+
+import core.ECKey;
+import core.Sha256Hash;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.util.BigIntegers;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+
+/**
+ * Signs and verifies through the JDK's own provider (SunEC on most JVMs), which may be faster than Bouncy Castle on
+ * some platforms. The curve parameters are looked up once, and each thread keeps its own {@link KeyFactory} and
+ * {@link Signature}, so no provider lookup happens per call. Nonces are always random here: the key's deterministic
+ * and nonce pool settings are ignored.
+ */
+public class JcaSignatureBackend implements SignatureBackend {
+    // The hash is computed by the caller, so the raw "NONE" variant signs it as is.
+    private static final String ALGORITHM = "NONEwithECDSA";
+
+    private static final ECParameterSpec ecParameterSpec;
+
+    static {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);  // Every JRE supports secp256r1.
+        }
+    }
+
+    private static final ThreadLocal<KeyFactory> keyFactory = new ThreadLocal<KeyFactory>() {
+        @Override
+        protected KeyFactory initialValue() {
+            try {
+                return KeyFactory.getInstance("EC");
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<Signature> signature = new ThreadLocal<Signature>() {
+        @Override
+        protected Signature initialValue() {
+            try {
+                return Signature.getInstance(ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    /**
+     * Returns this thread's raw {@value #ALGORITHM} instance. Callers hash the data themselves and must initialize it
+     * before each use.
+     */
+    static Signature signature() {
+        return signature.get();
+    }
+
+    /** Returns the JCA parameters of secp256r1, looked up once. */
+    public static ECParameterSpec getParameterSpec() {
+        return ecParameterSpec;
+    }
+
+    /** Wraps a raw private key as a JCA key. */
+    public static ECPrivateKey toPrivateKey(BigInteger priv) throws GeneralSecurityException {
+        return (ECPrivateKey) keyFactory.get().generatePrivate(new ECPrivateKeySpec(priv, ecParameterSpec));
+    }
+
+    /** Wraps the affine coordinates of a public key as a JCA key. */
+    public static ECPublicKey toPublicKey(BigInteger x, BigInteger y) throws GeneralSecurityException {
+        return (ECPublicKey) keyFactory.get().generatePublic(new ECPublicKeySpec(new ECPoint(x, y), ecParameterSpec));
+    }
+
+    public byte[] sign(Sha256Hash hash, ECKey key) {
+        try {
+            Signature signer = signature.get();
+            signer.initSign(toPrivateKey(key.getPriv()));
+            signer.update(hash.getBytes());
+            return derToRaw(signer.sign());
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);  // The provider returned a malformed signature.
+        }
+    }
+
+    public boolean verify(Sha256Hash hash, byte[] sig, byte[] pub) {
+        if (sig == null || sig.length != 64) {
+            return false;
+        }
+        try {
+            byte[] uncompressed = ECKey.decompressPubKey(pub);
+            BigInteger x = BigIntegers.fromUnsignedByteArray(uncompressed, 1, 32);
+            BigInteger y = BigIntegers.fromUnsignedByteArray(uncompressed, 33, 32);
+            Signature verifier = signature.get();
+            verifier.initVerify(toPublicKey(x, y));
+            verifier.update(hash.getBytes());
+            return verifier.verify(rawToDer(sig));
+        } catch (IllegalArgumentException e) {
+            // Not a point on the curve.
+            return false;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static byte[] rawToDer(byte[] sig) {
+        BigInteger r = BigIntegers.fromUnsignedByteArray(sig, 0, 32);
+        BigInteger s = BigIntegers.fromUnsignedByteArray(sig, 32, 32);
+        return new ECKey.ECDSASignature(r, s).encodeToDER();
+    }
+
+    private static byte[] derToRaw(byte[] der) throws IOException {
+        ASN1InputStream decoder = new ASN1InputStream(der);
+        try {
+            ASN1Sequence seq = (ASN1Sequence) decoder.readObject();
+            BigInteger r = ((ASN1Integer) seq.getObjectAt(0)).getPositiveValue();
+            BigInteger s = ((ASN1Integer) seq.getObjectAt(1)).getPositiveValue();
+            byte[] raw = new byte[64];
+            byte[] rBytes = BigIntegers.asUnsignedByteArray(32, r);
+            byte[] sBytes = BigIntegers.asUnsignedByteArray(32, s);
+            System.arraycopy(rBytes, 0, raw, 0, 32);
+            System.arraycopy(sBytes, 0, raw, 32, 32);
+            return raw;
+        } finally {
+            decoder.close();
+        }
+    }
+}
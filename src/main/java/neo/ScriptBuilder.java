@@ -5,30 +5,86 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import core.AddressCache;
+import core.BufferPool;
+import core.NeoBinaryWriter;
+import core.UInt160;
 import core.Utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Set;
 
-public class ScriptBuilder {
-    private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+/**
+ * Builds NeoVM scripts. A builder made with {@link #ScriptBuilder()} writes to a heap buffer of its own and needs no
+ * closing. One made with {@link #pooled()} writes to a buffer leased from {@link BufferPool}; close it once the script
+ * has been taken with {@link #toBytes()} so the buffer can be reused.
+ */
+public class ScriptBuilder implements AutoCloseable {
+    // The pooled buffer being written, or null for an unpooled builder.
+    private BufferPool.Lease lease;
+    // Null once the builder is closed.
+    private NeoBinaryWriter writer;
+
+    public ScriptBuilder() {
+        this.writer = new NeoBinaryWriter(BufferPool.MIN_SIZE);
+    }
+
+    private ScriptBuilder(BufferPool.Lease lease) {
+        this.lease = lease;
+        this.writer = new NeoBinaryWriter(lease.buffer());
+    }
+
+    /** Returns a builder writing to a pooled buffer. Use it in a try-with-resources block. */
+    public static ScriptBuilder pooled() {
+        return new ScriptBuilder(BufferPool.lease(BufferPool.MIN_SIZE));
+    }
 
     public byte[] toBytes() {
-        return baos.toByteArray();
+        return open().toByteArray();
+    }
+
+    /**
+     * Gives a pooled buffer back to the pool. The builder cannot be used afterwards: further calls throw
+     * {@link IllegalStateException}. Closing again does nothing.
+     */
+    public void close() {
+        if(lease != null) {
+            lease.close();
+            lease = null;
+        }
+        writer = null;
+    }
+
+    private NeoBinaryWriter open() {
+        if(writer == null) {
+            throw new IllegalStateException("script builder already closed");
+        }
+        return writer;
+    }
+
+    // Returns the writer, first moving a pooled builder to a bigger leased buffer if fewer than length bytes are left.
+    // An unpooled writer grows by itself.
+    private NeoBinaryWriter reserve(int length) {
+        ByteBuffer buf = open().buffer();
+        if(lease != null && buf.remaining() < length) {
+            int used = buf.position();
+            BufferPool.Lease bigger = BufferPool.lease(Math.max(buf.capacity() * 2, used + length));
+            System.arraycopy(lease.array(), 0, bigger.array(), 0, used);
+            lease.close();
+            lease = bigger;
+            writer = new NeoBinaryWriter(bigger.buffer());
+            writer.buffer().position(used);
+        }
+        return writer;
     }
 
     public ScriptBuilder Emit(byte opcode, byte[] arg) {
-        this.baos.write(opcode);
-        if(arg != null && arg.length > 0) {
-            try {
-                this.baos.write(arg);
-            }
-            catch (IOException e) {
-                e.printStackTrace();
-            }
+        int length = arg == null ? 0 : arg.length;
+        reserve(1 + length).writeByte(opcode);
+        if(length > 0) {
+            this.writer.write(arg);
         }
         return this;
     }
@@ -49,9 +105,7 @@ public class ScriptBuilder {
         if(opcode != OpCode.JMP && opcode != OpCode.JMPIF && opcode != OpCode.JMPIFNOT && opcode != OpCode.CALL) {
             throw new Exception("runtime error: opcode error");
         }
-        byte[] offsetBytes = new byte[2];
-        Utils.uint16ToByteArrayLE(offset, offsetBytes, 0);
-        this.Emit(opcode, offsetBytes);
+        reserve(3).writeByte(opcode).writeUInt16LE(offset);
         return this;
     }
 
@@ -90,30 +144,17 @@ public class ScriptBuilder {
     public ScriptBuilder EmitPushBytes(byte[] bytes) {
         int length = bytes.length;
 
-        try {
-            if (length <= OpCode.PUSHBYTES75) {
-                this.baos.write((byte) length);
-                this.baos.write(bytes);
-            } else if (length < 0x100) {
-                this.Emit(OpCode.PUSHDATA1, null);
-                this.baos.write((byte)length);
-                this.baos.write(bytes);
-            } else if (length < 0x10000) {
-                this.Emit(OpCode.PUSHDATA2, null);
-                byte[] lenBytes = new byte[2];
-                Utils.uint16ToByteArrayLE((short)length, lenBytes, 0);
-                this.baos.write(lenBytes);
-                this.baos.write(bytes);
-            } else {
-                this.Emit(OpCode.PUSHDATA4, null);
-                byte[] lenBytes = new byte[4];
-                Utils.uint32ToByteArrayLE(length, lenBytes, 0);
-                this.baos.write(lenBytes);
-                this.baos.write(bytes);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        reserve(5 + length);
+        if (length <= OpCode.PUSHBYTES75) {
+            this.writer.writeByte(length);
+        } else if (length < 0x100) {
+            this.writer.writeByte(OpCode.PUSHDATA1).writeByte(length);
+        } else if (length < 0x10000) {
+            this.writer.writeByte(OpCode.PUSHDATA2).writeUInt16LE(length);
+        } else {
+            this.writer.writeByte(OpCode.PUSHDATA4).writeUInt32LE(length);
         }
+        this.writer.write(bytes);
         return this;
     }
 
@@ -129,97 +170,99 @@ public class ScriptBuilder {
             throw new Exception("runtime error: api length error");
         }
 
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        os.write((byte)length);
-        os.write(hexdata);
-        this.Emit(OpCode.SYSCALL, os.toByteArray());
+        reserve(2 + length).writeByte(OpCode.SYSCALL).writeByte(length).write(hexdata);
 
         return this;
     }
 
-    private boolean getParamBytes(ByteArrayOutputStream os, String str) throws Exception {
+    // Returns the bytes a "(type)value" parameter stands for, or null if it is not one.
+    private byte[] getParamBytes(String str) throws Exception {
         byte[] bytes = str.getBytes();
         if(bytes[0] != '(') {
-            return false;
+            return null;
         }
         int length = bytes.length;
 
         String strData = "";
         if(str.indexOf("(str)") == 0) {
             strData = str.substring(5);
-            os.write(strData.getBytes());
+            return strData.getBytes();
         } else if(str.indexOf("(string)") == 0) {
             strData = str.substring(8);
-            os.write(strData.getBytes());
+            return strData.getBytes();
         } else if(str.indexOf("(bytes)") == 0) {
             strData = str.substring(7);
             byte[] data = Utils.hexStringToBytes(strData);
-            os.write(data);
+            return data;
         } else if(str.indexOf("([])") == 0) {
             strData = str.substring(4);
             byte[] data = Utils.hexStringToBytes(strData);
-            os.write(data);
+            return data;
         } else if(str.indexOf("(address)") == 0) {
             strData = str.substring(9);
-            byte[] pubHash = Helper.getPublicKeyHashFromAddress(strData);
-            os.write(pubHash);
+            UInt160 pubHash = AddressCache.getScriptHash(strData);
+            if(pubHash == null) {
+                throw new Exception("runtime error: invalid address " + strData);
+            }
+            return pubHash.toByteArray();
         } else if(str.indexOf("(addr)") == 0) {
             strData = str.substring(6);
-            byte[] pubHash = Helper.getPublicKeyHashFromAddress(strData);
-            os.write(pubHash);
+            UInt160 pubHash = AddressCache.getScriptHash(strData);
+            if(pubHash == null) {
+                throw new Exception("runtime error: invalid address " + strData);
+            }
+            return pubHash.toByteArray();
         } else if(str.indexOf("(integer)") == 0) {
             strData = str.substring(9);
             BigInteger value = new BigInteger(strData);
-            os.write(value.toByteArray());
+            return value.toByteArray();
         } else if(str.indexOf("(int)") == 0) {
             strData = str.substring(5);
             BigInteger value = new BigInteger(strData);
-            os.write(value.toByteArray());
+            return value.toByteArray();
         } else if(str.indexOf("(hexinteger)") == 0) {
             strData = str.substring(12);
             byte[] data = Utils.hexStringToBytes(strData);
-            os.write(data);
+            return data;
         } else if(str.indexOf("(hexint)") == 0) {
             strData = str.substring(8);
             byte[] data = Utils.hexStringToBytes(strData);
-            os.write(data);
+            return data;
         } else if(str.indexOf("(hex)") == 0) {
             strData = str.substring(5);
             byte[] data = Utils.hexStringToBytes(strData);
-            os.write(data);
+            return data;
         } else if(str.indexOf("(hex256)") == 0 || str.indexOf("(int256)") == 0) {
             strData = str.substring(8);
             byte[] data = Utils.hexStringToBytes(strData);
             if(data.length != 32) {
-                return false;
+                return null;
             }
-            os.write(data);
+            return data;
         } else if(str.indexOf("(uint256)") == 0) {
             strData = str.substring(9);
             byte[] data = Utils.hexStringToBytes(strData);
             if(data.length != 32) {
-                return false;
+                return null;
             }
-            os.write(data);
+            return data;
         } else if(str.indexOf("(hex160)") == 0 || str.indexOf("(int160)") == 0) {
             strData = str.substring(8);
             byte[] data = Utils.hexStringToBytes(strData);
             if(data.length != 20) {
-                return false;
+                return null;
             }
-            os.write(data);
+            return data;
         } else if(str.indexOf("(uint160)") == 0) {
             strData = str.substring(9);
             byte[] data = Utils.hexStringToBytes(strData);
             if(data.length != 20) {
-                return false;
+                return null;
             }
-            os.write(data);
+            return data;
         } else {
-            return false;
+            return null;
         }
-
-        return true;
     }
 
     public ScriptBuilder EmitParamJson(JsonElement param) {
@@ -230,13 +273,9 @@ public class ScriptBuilder {
             } else if(jsonPrimitive.isNumber()) {
                 this.EmitPushNumber(jsonPrimitive.getAsBigInteger());
             } else if(jsonPrimitive.isString()) {
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
                 byte[] data = null;
                 try {
-                    boolean ok = getParamBytes(os, jsonPrimitive.getAsString());
-                    if(ok) {
-                        data = os.toByteArray();
-                    }
+                    data = getParamBytes(jsonPrimitive.getAsString());
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
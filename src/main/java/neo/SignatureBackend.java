@@ -0,0 +1,28 @@
+package neo;
+
+import core.ECKey;
+import core.Sha256Hash;
+
+/**
+ * Produces and checks the signatures that go into transaction witnesses. Signatures are always in NEO's form: the
+ * 32 byte r followed by the 32 byte s, both big endian.
+ *
+ * <p>{@link api.TxCreator} and both {@link Transaction#addWitness(byte[], byte[], String)} methods go through
+ * whichever backend {@link Helper#getSignatureBackend()} returns, so the implementation can be switched at runtime
+ * with {@link Helper#setSignatureBackend(SignatureBackend)}. Implementations must be safe to call from many
+ * threads.</p>
+ */
+public interface SignatureBackend {
+    /**
+     * Signs the SHA-256 hash of a message with the private part of {@code key}.
+     *
+     * @return the 64 byte r||s signature.
+     */
+    byte[] sign(Sha256Hash hash, ECKey key);
+
+    /**
+     * Checks a 64 byte r||s signature over the SHA-256 hash of a message against an encoded public key, compressed or
+     * not. Returns false rather than throwing for malformed signatures or keys.
+     */
+    boolean verify(Sha256Hash hash, byte[] signature, byte[] pub);
+}
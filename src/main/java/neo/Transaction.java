@@ -1,15 +1,27 @@
 package neo;
 
 import core.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.security.interfaces.ECPublicKey;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 @Data
+@ToString(exclude = "message")
 public class Transaction {
     private byte txtype;
     private byte version;
@@ -19,184 +31,227 @@ public class Transaction {
     private List<Witness> witnesses = new ArrayList<>();
     private IExtData extdata;
 
-    public byte[] getMessage() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serializeUnsigned(baos);
-
-        return baos.toByteArray();
+    private static final Comparator<Witness> BY_SCRIPT_HASH = new Comparator<Witness>() {
+        public int compare(Witness a, Witness b) {
+            return a.getScriptHash().compareTo(b.getScriptHash());
+        }
+    };
+
+    // The unsigned serialization and its SHA-256, each computed on first use and dropped by the setters and
+    // invalidateHash(). Witnesses are not part of either, so adding them keeps both.
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient volatile byte[] message;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient volatile Sha256Hash messageHash;
+
+    public void setTxtype(byte txtype) {
+        this.txtype = txtype;
+        invalidateHash();
     }
 
-    public byte[] getRawData() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serialize(baos);
-
-        return baos.toByteArray();
+    public void setVersion(byte version) {
+        this.version = version;
+        invalidateHash();
     }
 
-    public byte[] getHash() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serialize(baos);
+    public void setAttributes(List<Attribute> attributes) {
+        this.attributes = attributes;
+        invalidateHash();
+    }
 
-        return baos.toByteArray();
+    public void setInputs(List<TransactionInput> inputs) {
+        this.inputs = inputs;
+        invalidateHash();
     }
 
-    public boolean addWitness(byte[] signData, byte[] pub, byte[] compressed, String addrs) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serializeUnsigned(baos);
+    public void setOutputs(List<TransactionOutput> outputs) {
+        this.outputs = outputs;
+        invalidateHash();
+    }
 
-        byte[] data = baos.toByteArray();
+    public void setExtdata(IExtData extdata) {
+        this.extdata = extdata;
+        invalidateHash();
+    }
 
-        /*
-        Sha256Hash sha256Hash = Sha256Hash.create(data);
+    /**
+     * Drops the memoized unsigned bytes and hashes. The setters do this themselves; call it after changing the
+     * attribute, input or output lists, or the objects in them, in place.
+     */
+    public void invalidateHash() {
+        this.message = null;
+        this.messageHash = null;
+    }
 
-        boolean bSign = ECKey.neoVerify(sha256Hash.getBytes(), signData, pub);
-        if(!bSign) {
-            return false;
-        }
-        */
-        ECPublicKey ecPublicKey = Helper.getPublicKey(pub);
-        boolean bSign = false;
-        try {
-            bSign = Helper.verify(data, signData, ecPublicKey);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+    // The memoized unsigned serialization. Never handed out, so never modified.
+    private byte[] unsignedBytes() {
+        byte[] bytes = this.message;
+        if(bytes == null) {
+            bytes = new byte[computeUnsignedSize()];
+            // Not the thread's shared writer: this can run while serializeTo(ByteBuffer) is using it.
+            writeUnsigned(new NeoBinaryWriter(ByteBuffer.wrap(bytes)));
+            this.message = bytes;
         }
+        return bytes;
+    }
 
-        if(!bSign) {
-            return false;
+    /**
+     * Returns the SHA-256 of the unsigned serialization, the hash that witnesses sign. The result is memoized until
+     * the transaction changes.
+     */
+    public Sha256Hash getMessageHash() {
+        Sha256Hash hash = this.messageHash;
+        if(hash == null) {
+            byte[] bytes = unsignedBytes();
+            hash = new Sha256Hash(Utils.singleDigest(bytes, 0, bytes.length));
+            this.messageHash = hash;
         }
+        return hash;
+    }
 
-        Address address = Helper.toAddress(new NetworkParameters(), compressed);
-        String addr = address.toString();
-        if(!addr.equals(addrs)) {
-            return false;
-        }
-        byte[] vscript = Helper.getScriptFromPublicKey(compressed);
-        ScriptBuilder scriptBuilder = new ScriptBuilder();
-        scriptBuilder.EmitPushBytes(signData);
-        byte[] iscript = scriptBuilder.toBytes();
-        this.addWitnessScript(vscript, iscript);
-        return true;
+    /**
+     * Returns the transaction id: the double SHA-256 of the unsigned serialization, in the byte order it is hashed
+     * in. Explorers and RPC display it byte reversed, see {@link Utils#reverseBytes(byte[])}.
+     */
+    public Sha256Hash getTxid() {
+        return Sha256Hash.create(getMessageHash().getBytes());
     }
 
-    public boolean addWitness(byte[] signData, byte[] pub, String addrs) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serializeUnsigned(baos);
+    /** Returns a copy of the unsigned serialization, the data witnesses sign. */
+    public byte[] getMessage() {
+        return unsignedBytes().clone();
+    }
+
+    public byte[] getRawData() {
+        ByteBuffer buf = ByteBuffer.allocate(getSerializedSize());
+        serializeTo(buf);
+        return buf.array();
+    }
+
+    /** Returns the bytes of {@link #getTxid()}. */
+    public byte[] getHash() {
+        return getTxid().getBytes();
+    }
 
-        byte[] data = baos.toByteArray();
+    public boolean addWitness(byte[] signData, byte[] pub, byte[] compressed, String addrs) {
+        return this.addSignedWitness(signData, pub, compressed, addrs);
+    }
 
+    public boolean addWitness(byte[] signData, byte[] pub, String addrs) {
+        return this.addSignedWitness(signData, pub, pub, addrs);
+    }
 
-        Sha256Hash sha256Hash = Sha256Hash.create(data);
+    /**
+     * Checks {@code signData} against {@code pub}, and that {@code scriptKey}, the encoding of the same key that goes
+     * into the verification script, belongs to {@code addrs}, then adds the witness.
+     */
+    private boolean addSignedWitness(byte[] signData, byte[] pub, byte[] scriptKey, String addrs) {
+        Sha256Hash sha256Hash = getMessageHash();
 
-        boolean bSign = ECKey.neoVerify(sha256Hash.getBytes(), signData, pub);
+        boolean bSign = Helper.getSignatureBackend().verify(sha256Hash, signData, pub);
         if(!bSign) {
             return false;
         }
 
-
-        Address address = Helper.toAddress(new NetworkParameters(), pub);
+        Address address = Helper.toAddress(new NetworkParameters(), scriptKey);
         String addr = address.toString();
         if(!addr.equals(addrs)) {
             return false;
         }
-        byte[] vscript = Helper.getScriptFromPublicKey(pub);
-        ScriptBuilder scriptBuilder = new ScriptBuilder();
-        scriptBuilder.EmitPushBytes(signData);
-        byte[] iscript = scriptBuilder.toBytes();
-        this.addWitnessScript(vscript, iscript);
-        return true;
+        byte[] vscript = Helper.getScriptFromPublicKey(scriptKey);
+        byte[] iscript;
+        try (ScriptBuilder scriptBuilder = ScriptBuilder.pooled()) {
+            iscript = scriptBuilder.EmitPushBytes(signData).toBytes();
+        }
+        return this.addWitnessScript(vscript, iscript);
     }
 
-    public boolean addWitnessScript(byte[] script, byte[] iscript) {
-        Witness newwit = new Witness();
-        newwit.setVerificationScript(script);
-        newwit.setInvocationScript(iscript);
+    /**
+     * Checks the signature in every standard single-signature witness against this transaction's unsigned data, as
+     * one batch through {@link ECKey#verifyBatch}. Witnesses with any other verification script (smart contracts)
+     * can only be evaluated by the VM and are not considered here.
+     *
+     * @return true if every standard witness carries a valid signature.
+     */
+    public boolean verifyAllWitnesses() {
+        return verifyAllWitnesses(null);
+    }
 
+    /**
+     * Same as {@link #verifyAllWitnesses()}, and if {@code invalid} is not null, also sets in it the index (in
+     * {@link #getWitnesses()}) of each standard witness whose signature is missing or does not verify.
+     */
+    public boolean verifyAllWitnesses(BitSet invalid) {
         int size = this.witnesses.size();
+        int[] indexes = new int[size];
+        byte[][] signatures = new byte[size][];
+        byte[][] pubs = new byte[size][];
+        int count = 0;
         for(int i = 0; i < size; i++) {
-            Witness tmpwit = this.witnesses.get(i);
-            String tmpAddr = tmpwit.getAddress();
-            String newAddr = newwit.getAddress();
-            if(tmpAddr == newAddr) {
-                return false;
+            Witness witness = this.witnesses.get(i);
+            if(witness.issSmartContract()) {
+                continue;
             }
-        }
-        this.witnesses.add(newwit);
-        return true;
-    }
-
-    public boolean serializeUnsigned(ByteArrayOutputStream baos) {
-        try {
-            baos.write(this.txtype);
-            baos.write(this.version);
-            if(this.txtype == TransactionType.ContractTransaction) {
-
-            } else if(this.txtype == TransactionType.InvocationTransaction) {
-                this.extdata.Serialize(this, baos);
-            } else {
-                throw new Exception("runtime error: tx type error");
+            byte[] iscript = witness.getInvocationScript();
+            byte[] signature = null;
+            if(iscript != null && iscript.length == 65 && iscript[0] == 64) {
+                signature = new byte[64];
+                System.arraycopy(iscript, 1, signature, 0, 64);
             }
+            byte[] pub = new byte[33];
+            System.arraycopy(witness.getVerificationScript(), 1, pub, 0, 33);
+            indexes[count] = i;
+            signatures[count] = signature;
+            pubs[count] = pub;
+            count++;
+        }
 
-            int length = 0;
-            if(this.attributes != null) {
-                length = this.attributes.size();
+        byte[] hash = getMessageHash().getBytes();
+        byte[][] hashes = new byte[count][];
+        Arrays.fill(hashes, hash);
+        BitSet failed = new BitSet();
+        boolean ok = ECKey.verifyBatch(hashes, Arrays.copyOf(signatures, count),
+                Arrays.copyOf(pubs, count), failed);
+        if(invalid != null) {
+            for(int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1)) {
+                invalid.set(indexes[i]);
             }
+        }
+        return ok;
+    }
 
-            VarInt varLength = new VarInt(length);
-            byte[] lenBytes = varLength.encode();
-            baos.write(lenBytes);
-
-            for(int i = 0; i < length; i++) {
-                byte[] attriData = this.attributes.get(i).getData();
-                byte usage = this.attributes.get(i).getUsage();
-
-                if (usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
-                    baos.write(attriData, 0, 32);
-                } else if (usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
-                    baos.write(attriData, 1, 32);
-                } else if (usage == AttributeType.Script) {
-                    baos.write(attriData, 0, 20);
-                } else if (usage == AttributeType.DescriptionUrl) {
-                    int len = attriData.length;
-                    baos.write((byte)len);
-                    baos.write(attriData, 0, len);
-                } else if (usage == AttributeType.Description || usage >= AttributeType.Remark) {
-                    int len = attriData.length;
-                    VarInt varLen = new VarInt(len);
-                    byte[] lenBytes2 = varLen.encode();
-                    baos.write(lenBytes2);
-                    baos.write(attriData, 0, len);
-                } else {
-                    throw new Exception("runtime error: attribute type error");
-                }
-            }
+    /**
+     * Adds a witness for the given verification and invocation scripts, keeping the witnesses sorted by script hash
+     * as the protocol requires. Returns false, adding nothing, if there already is a witness for the same script.
+     * Witnesses set through {@link #setWitnesses} or parsed from the wire are sorted first if they are out of order.
+     */
+    public boolean addWitnessScript(byte[] script, byte[] iscript) {
+        Witness newwit = new Witness();
+        newwit.setVerificationScript(script);
+        newwit.setInvocationScript(iscript);
 
-            int countInputs = this.inputs.size();
-            VarInt varInputs = new VarInt(countInputs);
-            byte[] lenInputs = varInputs.encode();
-            baos.write(lenInputs);
-
-            for(int i = 0; i < countInputs; i++) {
-                TransactionInput input = this.inputs.get(i);
-                baos.write(input.getHash());
-                byte[] indexBytes = new byte[2];
-                Utils.uint16ToByteArrayLE(input.getIndex(), indexBytes, 0);
-                baos.write(indexBytes);
+        // The binary search below only finds a duplicate, and the right place to insert, in a sorted list.
+        for(int i = 1; i < this.witnesses.size(); i++) {
+            if(BY_SCRIPT_HASH.compare(this.witnesses.get(i - 1), this.witnesses.get(i)) > 0) {
+                Collections.sort(this.witnesses, BY_SCRIPT_HASH);
+                break;
             }
+        }
+        int index = Collections.binarySearch(this.witnesses, newwit, BY_SCRIPT_HASH);
+        if(index >= 0) {
+            return false;
+        }
+        this.witnesses.add(-index - 1, newwit);
+        return true;
+    }
 
-            int countOutputs = this.outputs.size();
-            VarInt varOutputs = new VarInt(countOutputs);
-            byte[] lenOutputs = varOutputs.encode();
-            baos.write(lenOutputs);
-
-            for(int i = 0; i < countOutputs; i++) {
-                TransactionOutput output = this.outputs.get(i);
-                baos.write(output.getAssetId());
-                Utils.int64ToByteStreamLE(output.getValue().getValue(), baos);
-                baos.write(output.getToAddress());
+    public boolean serializeUnsigned(OutputStream baos) {
+        try {
+            int size = getUnsignedSize();
+            try (BufferPool.Lease lease = BufferPool.lease(size)) {
+                serializeUnsignedTo(lease.buffer());
+                baos.write(lease.array(), 0, size);
             }
-
         }catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -205,29 +260,12 @@ public class Transaction {
         return true;
     }
 
-    public boolean serialize(ByteArrayOutputStream baos) {
-        this.serializeUnsigned(baos);
-
+    public boolean serialize(OutputStream baos) {
         try {
-            int length = this.witnesses.size();
-            VarInt varLength = new VarInt(length);
-            byte[] lenBytes = varLength.encode();
-            baos.write(lenBytes);
-
-            for(int i = 0; i < length; i++) {
-                Witness witness = this.witnesses.get(i);
-
-                int invLength = witness.getInvocationScript().length;
-                VarInt varInv = new VarInt(invLength);
-                byte[] invBytes = varInv.encode();
-                baos.write(invBytes);
-                baos.write(witness.getInvocationScript());
-
-                int verLength = witness.getVerificationScript().length;
-                VarInt varVer = new VarInt(verLength);
-                byte[] verBytes = varVer.encode();
-                baos.write(verBytes);
-                baos.write(witness.getVerificationScript());
+            int size = getSerializedSize();
+            try (BufferPool.Lease lease = BufferPool.lease(size)) {
+                serializeTo(lease.buffer());
+                baos.write(lease.array(), 0, size);
             }
         }catch (Exception e) {
             e.printStackTrace();
@@ -236,100 +274,275 @@ public class Transaction {
         return true;
     }
 
-    public boolean deserialize(ByteArrayInputStream bais) {
-        this.txtype = (byte)bais.read();
-        this.version = (byte)bais.read();
+    /** Returns the exact number of bytes {@link #serializeUnsignedTo(ByteBuffer)} writes. */
+    public int getUnsignedSize() {
+        byte[] bytes = this.message;
+        return bytes != null ? bytes.length : computeUnsignedSize();
+    }
+
+    private int computeUnsignedSize() {
+        int size = 2;
+        if(this.txtype == TransactionType.InvocationTransaction) {
+            size += this.extdata.getSerializedSize(this);
+        } else if(this.txtype != TransactionType.ContractTransaction) {
+            throw new IllegalStateException("runtime error: tx type error");
+        }
+
+        int countAttributes = this.attributes == null ? 0 : this.attributes.size();
+        size += VarInt.sizeOf(countAttributes);
+        for(int i = 0; i < countAttributes; i++) {
+            Attribute attribute = this.attributes.get(i);
+            size += 1 + attributeDataSize(attribute.getUsage(), attribute.getData());
+        }
+
+        int countInputs = this.inputs == null ? 0 : this.inputs.size();
+        size += VarInt.sizeOf(countInputs) + countInputs * (UInt256.LENGTH + 2);
+        int countOutputs = this.outputs == null ? 0 : this.outputs.size();
+        size += VarInt.sizeOf(countOutputs) + countOutputs * (UInt256.LENGTH + 8 + UInt160.LENGTH);
+        return size;
+    }
 
+    /** Returns the exact number of bytes {@link #serializeTo(ByteBuffer)} writes. */
+    public int getSerializedSize() {
+        int size = getUnsignedSize();
+        int countWitnesses = this.witnesses.size();
+        size += VarInt.sizeOf(countWitnesses);
+        for(int i = 0; i < countWitnesses; i++) {
+            Witness witness = this.witnesses.get(i);
+            int invLength = witness.getInvocationScript().length;
+            int verLength = witness.getVerificationScript().length;
+            size += NeoBinaryWriter.sizeOfVarBytes(invLength) + NeoBinaryWriter.sizeOfVarBytes(verLength);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the unsigned serialization at the buffer's position in one pass, the same bytes as
+     * {@link #serializeUnsigned(OutputStream)}. The buffer can be heap or direct; its byte order is left as it was.
+     *
+     * @throws BufferOverflowException if fewer than {@link #getUnsignedSize()} bytes remain, before anything is
+     *                                 written.
+     */
+    public void serializeUnsignedTo(ByteBuffer buf) {
+        if(buf.remaining() < getUnsignedSize()) {
+            throw new BufferOverflowException();
+        }
+        ByteOrder order = buf.order();
+        NeoBinaryWriter writer = NeoBinaryWriter.get(buf);
+        try {
+            serializeUnsignedTo(writer);
+        } finally {
+            writer.release();
+            buf.order(order);
+        }
+    }
+
+    /**
+     * Writes the full serialization, witnesses included, at the buffer's position in one pass, the same bytes as
+     * {@link #serialize(OutputStream)}. The buffer can be heap or direct; its byte order is left as it was.
+     *
+     * @throws BufferOverflowException if fewer than {@link #getSerializedSize()} bytes remain, before anything is
+     *                                 written.
+     */
+    public void serializeTo(ByteBuffer buf) {
+        if(buf.remaining() < getSerializedSize()) {
+            throw new BufferOverflowException();
+        }
+        ByteOrder order = buf.order();
+        NeoBinaryWriter writer = NeoBinaryWriter.get(buf);
         try {
-            if (this.txtype == TransactionType.ContractTransaction) {
-                this.extdata = null;
-            } else if (this.txtype == TransactionType.InvocationTransaction) {
-                this.extdata = new InvokeTransData();
+            serializeTo(writer);
+        } finally {
+            writer.release();
+            buf.order(order);
+        }
+    }
+
+    /** Writes the full serialization, witnesses included, to {@code writer}. */
+    public void serializeTo(NeoBinaryWriter writer) {
+        serializeUnsignedTo(writer);
+        int countWitnesses = this.witnesses.size();
+        writer.writeVarInt(countWitnesses);
+        for(int i = 0; i < countWitnesses; i++) {
+            Witness witness = this.witnesses.get(i);
+            writer.writeVarBytes(witness.getInvocationScript());
+            writer.writeVarBytes(witness.getVerificationScript());
+        }
+    }
+
+    /** Writes the unsigned serialization to {@code writer}, from the memoized bytes once there are any. */
+    public void serializeUnsignedTo(NeoBinaryWriter writer) {
+        writer.write(unsignedBytes());
+    }
+
+    private void writeUnsigned(NeoBinaryWriter writer) {
+        writer.writeByte(this.txtype);
+        writer.writeByte(this.version);
+        if(this.txtype == TransactionType.InvocationTransaction) {
+            this.extdata.serializeTo(this, writer);
+        } else if(this.txtype != TransactionType.ContractTransaction) {
+            throw new IllegalStateException("runtime error: tx type error");
+        }
+
+        int countAttributes = this.attributes == null ? 0 : this.attributes.size();
+        writer.writeVarInt(countAttributes);
+        for(int i = 0; i < countAttributes; i++) {
+            Attribute attribute = this.attributes.get(i);
+            byte usage = attribute.getUsage();
+            byte[] attriData = attribute.getData();
+            writer.writeByte(usage);
+            if (usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
+                writer.write(attriData, 0, 32);
+            } else if (usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
+                writer.write(attriData, 1, 32);
+            } else if (usage == AttributeType.Script) {
+                writer.write(attriData, 0, 20);
+            } else if (usage == AttributeType.DescriptionUrl) {
+                writer.writeByte(attriData.length);
+                writer.write(attriData);
+            } else if (usage == AttributeType.Description || usage >= AttributeType.Remark) {
+                writer.writeVarBytes(attriData);
             } else {
-                throw new Exception("runtime error: tx type error");
+                throw new IllegalStateException("runtime error: attribute type error");
             }
+        }
 
-            if(this.extdata != null) {
-                this.extdata.Deserialize(this, bais);
-            }
+        int countInputs = this.inputs == null ? 0 : this.inputs.size();
+        writer.writeVarInt(countInputs);
+        for(int i = 0; i < countInputs; i++) {
+            TransactionInput input = this.inputs.get(i);
+            writer.writeUInt256(input.getHash());
+            writer.writeUInt16LE(input.getIndex());
+        }
 
-            int countAttri = Helper.ReadVarInt(bais);
-            if(countAttri > 0) {
-                this.attributes = new ArrayList<Attribute>();
-            }
+        int countOutputs = this.outputs == null ? 0 : this.outputs.size();
+        writer.writeVarInt(countOutputs);
+        for(int i = 0; i < countOutputs; i++) {
+            TransactionOutput output = this.outputs.get(i);
+            writer.writeUInt256(output.getAssetId());
+            writer.writeInt64LE(output.getValue().getValue());
+            writer.writeUInt160(output.getToAddress());
+        }
+    }
 
-            for(int i = 0; i < countAttri; i++) {
-                byte usage = (byte)bais.read();
-                Attribute attribute = new Attribute();
-                this.attributes.add(attribute);
-                attribute.setUsage(usage);
-
-                if(usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
-                    byte[] attriData = new byte[32];
-                    bais.read(attriData);
-                    attribute.setData(attriData);
-                } else if(usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
-                    byte[] attriData = new byte[33];
-                    attriData[0] = usage;
-                    bais.read(attriData, 1, 32);
-                    attribute.setData(attriData);
-                } else if(usage == AttributeType.Script) {
-                    byte[] attriData = new byte[20];
-                    bais.read(attriData);
-                    attribute.setData(attriData);
-                } else if(usage == AttributeType.DescriptionUrl) {
-                    byte length = (byte)bais.read();
-                    byte[] attriData = new byte[length];
-                    bais.read(attriData);
-                    attribute.setData(attriData);
-                } else if(usage == AttributeType.Description || usage >= AttributeType.Remark) {
-                    byte length = (byte)Helper.ReadVarInt(bais);
-                    byte[] attriData = new byte[length];
-                    bais.read(attriData);
-                    attribute.setData(attriData);
-                } else {
-                    throw new Exception("runtime error: attribute type error");
-                }
-            }
+    // Bytes an attribute takes after its usage byte. Also rejects usages the serializers don't know.
+    private static int attributeDataSize(byte usage, byte[] attriData) {
+        if (usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
+            return 32;
+        } else if (usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
+            return 32;
+        } else if (usage == AttributeType.Script) {
+            return 20;
+        } else if (usage == AttributeType.DescriptionUrl) {
+            return 1 + attriData.length;
+        } else if (usage == AttributeType.Description || usage >= AttributeType.Remark) {
+            return NeoBinaryWriter.sizeOfVarBytes(attriData.length);
+        }
+        throw new IllegalStateException("runtime error: attribute type error");
+    }
 
-            int countInputs = Helper.ReadVarInt(bais);
-            if(countInputs > 0) {
-                this.inputs = new ArrayList<TransactionInput>();
-            }
+    /**
+     * Parses one signed transaction, as written by {@link #serializeTo(ByteBuffer)}, from the buffer's position and
+     * leaves the position just past it. Works on heap, direct and memory-mapped buffers alike; the byte order of the
+     * buffer is left as it was. Every length and count is checked against the bytes remaining before anything is
+     * allocated for it.
+     *
+     * @throws IllegalArgumentException if the data is truncated or malformed. The buffer's position is then
+     *                                  unspecified.
+     */
+    public static Transaction parse(ByteBuffer buf) {
+        ByteOrder order = buf.order();
+        try {
+            Transaction tx = new Transaction();
+            tx.read(new NeoBinaryReader(buf));
+            return tx;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("runtime error: transaction truncated", e);
+        } finally {
+            buf.order(order);
+        }
+    }
 
-            for(int i = 0; i < countInputs; i++) {
-                TransactionInput input = new TransactionInput();
-                this.inputs.add(input);
-                byte[] hash = new byte[32];
-                bais.read(hash);
-                input.setHash(hash);
-
-                byte[] indexBytes = new byte[2];
-                bais.read(indexBytes);
-                short index = (short)Utils.readUint16(indexBytes, 0);
-                input.setIndex(index);
-            }
+    /** Reads one signed transaction from {@code reader}, replacing every field of this one. */
+    public void read(NeoBinaryReader reader) {
+        readUnsigned(reader);
+        int countWitnesses = reader.readLength(2);
+        this.witnesses = new ArrayList<Witness>(countWitnesses);
+        for(int i = 0; i < countWitnesses; i++) {
+            Witness witness = new Witness();
+            witness.setInvocationScript(reader.readVarBytes());
+            witness.setVerificationScript(reader.readVarBytes());
+            this.witnesses.add(witness);
+        }
+    }
 
-            int countOutputs = Helper.ReadVarInt(bais);
-            if(countOutputs > 0) {
-                this.outputs = new ArrayList<TransactionOutput>();
-            }
+    private void readUnsigned(NeoBinaryReader reader) {
+        invalidateHash();
+        this.txtype = reader.readByte();
+        this.version = reader.readByte();
+        if(this.txtype == TransactionType.ContractTransaction) {
+            this.extdata = null;
+        } else if(this.txtype == TransactionType.InvocationTransaction) {
+            this.extdata = new InvokeTransData();
+            this.extdata.parse(this, reader);
+        } else {
+            throw new IllegalArgumentException("runtime error: tx type error");
+        }
 
-            for(int i = 0; i < countOutputs; i++) {
-                TransactionOutput output = new TransactionOutput();
-                this.outputs.add(output);
-                byte[] assetId = new byte[32];
-                bais.read(assetId);
-                output.setAssetId(assetId);
-                byte[] valueBytes = new byte[8];
-                bais.read(valueBytes);
-                long value = Utils.readInt64(valueBytes, 0);
-                Fixed8 num = new Fixed8();
-                num.setValue(value);
-                output.setValue(num);
-                byte[] toAddrss = new byte[20];
-                output.setToAddress(toAddrss);
+        // Each element is checked against the smallest encoding it can have before its list is sized.
+        int countAttributes = reader.readLength(1 + 1);
+        this.attributes = new ArrayList<Attribute>(countAttributes);
+        for(int i = 0; i < countAttributes; i++) {
+            byte usage = reader.readByte();
+            byte[] attriData;
+            if(usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
+                attriData = reader.readBytes(32);
+            } else if(usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
+                reader.require(32);
+                attriData = new byte[33];
+                attriData[0] = usage;
+                reader.readBytes(attriData, 1, 32);
+            } else if(usage == AttributeType.Script) {
+                attriData = reader.readBytes(20);
+            } else if(usage == AttributeType.DescriptionUrl) {
+                attriData = reader.readBytes(reader.readByte() & 0xFF);
+            } else if(usage == AttributeType.Description || usage >= AttributeType.Remark) {
+                attriData = reader.readVarBytes();
+            } else {
+                throw new IllegalArgumentException("runtime error: attribute type error");
             }
+            Attribute attribute = new Attribute();
+            attribute.setUsage(usage);
+            attribute.setData(attriData);
+            this.attributes.add(attribute);
+        }
+
+        int countInputs = reader.readLength(UInt256.LENGTH + 2);
+        this.inputs = new ArrayList<TransactionInput>(countInputs);
+        for(int i = 0; i < countInputs; i++) {
+            TransactionInput input = new TransactionInput();
+            input.setHash(reader.readUInt256());
+            input.setIndex(reader.readInt16LE());
+            this.inputs.add(input);
+        }
+
+        int countOutputs = reader.readLength(UInt256.LENGTH + 8 + UInt160.LENGTH);
+        this.outputs = new ArrayList<TransactionOutput>(countOutputs);
+        for(int i = 0; i < countOutputs; i++) {
+            TransactionOutput output = new TransactionOutput();
+            output.setAssetId(reader.readUInt256());
+            Fixed8 value = new Fixed8();
+            value.setValue(reader.readInt64LE());
+            output.setValue(value);
+            output.setToAddress(reader.readUInt160());
+            this.outputs.add(output);
+        }
+    }
+
+    /** Reads the unsigned part of a transaction from the stream, leaving it just past that part. */
+    public boolean deserialize(ByteArrayInputStream bais) {
+        try {
+            readUnsigned(new NeoBinaryReader(bais));
         } catch (Exception e) {
             e.printStackTrace();
         }
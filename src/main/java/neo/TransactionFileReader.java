@@ -0,0 +1,303 @@
+package neo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p>Reads files of signed transactions written back to back, as produced by {@link Transaction#serializeTo}, through
+ * memory-mapped windows. Each transaction is returned as a {@link TransactionView} together with its file and byte
+ * offset. Only one window per reader thread is mapped at a time, and mapped memory is not Java heap, so heap use does
+ * not grow with the size of the files.</p>
+ *
+ * <p>{@link #forEach(Callback)} walks the files in order on the calling thread. {@link #spliterator()} and
+ * {@link #stream(boolean)} can also be split across threads: transactions carry no sync markers, so a first,
+ * lightweight pass over the files notes the transaction boundary nearest each {@code checkpointInterval} bytes, and
+ * the work is then split at those boundaries.</p>
+ *
+ * <p>A view reads straight from its window, which stays mapped for as long as the view is reachable. A transaction
+ * must fit in one window.</p>
+ */
+public class TransactionFileReader implements Closeable {
+    /** Default size of each mapped window. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+    /** Default distance between split points. */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 16 << 20;
+
+    /** One transaction read from a file. */
+    public static final class Entry {
+        private final Path file;
+        private final long offset;
+        private final TransactionView transaction;
+
+        Entry(Path file, long offset, TransactionView transaction) {
+            this.file = file;
+            this.offset = offset;
+            this.transaction = transaction;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /** Byte offset of the transaction within its file. */
+        public long getOffset() {
+            return offset;
+        }
+
+        public TransactionView getTransaction() {
+            return transaction;
+        }
+    }
+
+    /** Receives each transaction read by {@link #forEach(Callback)}. */
+    public interface Callback {
+        void accept(Entry entry) throws Exception;
+    }
+
+    private final Path[] files;
+    private final FileChannel[] channels;
+    private final int windowSize;
+    private final long checkpointInterval;
+
+    // Ranges between split points, found by the pre-scan on the first call to spliterator().
+    private List<Segment> segments;
+
+    /** Opens the given files, to be read in order, with the default window size and checkpoint interval. */
+    public TransactionFileReader(Path... files) throws IOException {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_CHECKPOINT_INTERVAL, files);
+    }
+
+    /**
+     * @param windowSize         bytes mapped at a time. Must be at least as large as the largest transaction.
+     * @param checkpointInterval approximate bytes between the points where {@link #spliterator()} can split.
+     * @param files              files to read, in order.
+     */
+    public TransactionFileReader(int windowSize, long checkpointInterval, Path... files) throws IOException {
+        checkArgument(windowSize > 0, "windowSize must be positive");
+        checkArgument(checkpointInterval > 0, "checkpointInterval must be positive");
+        this.windowSize = windowSize;
+        this.checkpointInterval = checkpointInterval;
+        this.files = files.clone();
+        this.channels = new FileChannel[files.length];
+        try {
+            for (int i = 0; i < files.length; i++)
+                channels[i] = FileChannel.open(files[i], StandardOpenOption.READ);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Passes every transaction in every file, in order, to {@code callback} on the calling thread. Needs no
+     * pre-scan.
+     *
+     * @throws IllegalArgumentException if a file holds data that is not a well formed transaction.
+     */
+    public void forEach(Callback callback) throws Exception {
+        for (int i = 0; i < files.length; i++) {
+            Cursor cursor = new Cursor(i, 0, channels[i].size());
+            Entry entry;
+            while ((entry = cursor.next()) != null)
+                callback.accept(entry);
+        }
+    }
+
+    /**
+     * Returns a spliterator over every transaction in every file. The first call makes the pre-scan pass that finds
+     * the split points.
+     */
+    public synchronized Spliterator<Entry> spliterator() throws IOException {
+        if (segments == null)
+            segments = scan();
+        return new SegmentSpliterator(segments, 0, segments.size());
+    }
+
+    /** Returns a stream over every transaction, parallel if asked. See {@link #spliterator()}. */
+    public Stream<Entry> stream(boolean parallel) throws IOException {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            if (channel == null)
+                continue;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    // Walks each file once, noting the first transaction boundary at or after every checkpointInterval bytes.
+    private List<Segment> scan() throws IOException {
+        List<Segment> result = new ArrayList<Segment>();
+        for (int i = 0; i < files.length; i++) {
+            long size = channels[i].size();
+            Cursor cursor = new Cursor(i, 0, size);
+            long start = 0;
+            long nextCheckpoint = checkpointInterval;
+            while (cursor.skip()) {
+                if (cursor.position >= nextCheckpoint && cursor.position < size) {
+                    result.add(new Segment(i, start, cursor.position));
+                    start = cursor.position;
+                    nextCheckpoint = start + checkpointInterval;
+                }
+            }
+            if (start < size)
+                result.add(new Segment(i, start, size));
+        }
+        return result;
+    }
+
+    /** A byte range of one file that starts and ends on transaction boundaries. */
+    private static final class Segment {
+        final int file;
+        final long start, end;
+
+        Segment(int file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** Reads the transactions in one byte range of a file through a sliding mapped window. */
+    private final class Cursor {
+        private final int file;
+        private final long end;
+        private long position;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Cursor(int file, long start, long end) {
+            this.file = file;
+            this.position = start;
+            this.end = end;
+        }
+
+        /** Returns the next transaction, or null at the end of the range. */
+        Entry next() throws IOException {
+            long offset = position;
+            TransactionView view = read();
+            return view == null ? null : new Entry(files[file], offset, view);
+        }
+
+        /** Steps over the next transaction; returns false at the end of the range. */
+        boolean skip() throws IOException {
+            return read() != null;
+        }
+
+        private TransactionView read() throws IOException {
+            if (position >= end)
+                return null;
+            if (window == null || position >= windowStart + window.limit())
+                map();
+            window.position((int) (position - windowStart));
+            TransactionView view;
+            try {
+                view = TransactionView.wrap(window);
+            } catch (IllegalArgumentException e) {
+                // Perhaps only cut off by the end of the window. Map a fresh one from here and try once more.
+                if (windowStart == position)
+                    throw malformed(e);
+                map();
+                window.position(0);
+                try {
+                    view = TransactionView.wrap(window);
+                } catch (IllegalArgumentException e2) {
+                    throw malformed(e2);
+                }
+            }
+            position = windowStart + window.position();
+            if (position > end)
+                throw malformed(null);
+            return view;
+        }
+
+        private void map() throws IOException {
+            long size = Math.min(windowSize, end - position);
+            windowStart = position;
+            window = channels[file].map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+
+        private IllegalArgumentException malformed(Exception cause) {
+            return new IllegalArgumentException("runtime error: malformed transaction at offset " + position + " of "
+                    + files[file] + " (or larger than the " + windowSize + " byte window)", cause);
+        }
+    }
+
+    private final class SegmentSpliterator implements Spliterator<Entry> {
+        private final List<Segment> segments;
+        private int index;
+        private final int fence;
+        private Cursor cursor;
+
+        SegmentSpliterator(List<Segment> segments, int index, int fence) {
+            this.segments = segments;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        public boolean tryAdvance(Consumer<? super Entry> action) {
+            try {
+                while (true) {
+                    if (cursor == null) {
+                        if (index >= fence)
+                            return false;
+                        Segment segment = segments.get(index++);
+                        cursor = new Cursor(segment.file, segment.start, segment.end);
+                    }
+                    Entry entry = cursor.next();
+                    if (entry != null) {
+                        action.accept(entry);
+                        return true;
+                    }
+                    cursor = null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public Spliterator<Entry> trySplit() {
+            // The split must be a prefix, so once a segment is under way nothing can be handed off.
+            int mid = (index + fence) >>> 1;
+            if (cursor != null || mid <= index)
+                return null;
+            Spliterator<Entry> prefix = new SegmentSpliterator(segments, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            long bytes = 0;
+            for (int i = index; i < fence; i++)
+                bytes += segments.get(i).end - segments.get(i).start;
+            if (cursor != null)
+                bytes += cursor.end - cursor.position;
+            return bytes;
+        }
+
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package neo;
 
+import core.UInt256;
 import lombok.Data;
 
 @Data
 public class TransactionInput {
-    private byte[] hash;
+    private UInt256 hash;
     private short index;
 }
@@ -1,10 +1,12 @@
 package neo;
 
+import core.UInt160;
+import core.UInt256;
 import lombok.Data;
 
 @Data
 public class TransactionOutput {
-    private byte[] assetId;
+    private UInt256 assetId;
     private Fixed8 value;
-    private byte[] toAddress;
+    private UInt160 toAddress;
 }
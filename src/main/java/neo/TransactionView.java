@@ -0,0 +1,319 @@
+package neo;
+
+import core.NeoBinaryReader;
+import core.Sha256Hash;
+import core.UInt160;
+import core.UInt256;
+import core.Utils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>A read-only view of one serialized, signed transaction. Creating it makes a single pass over the bytes that
+ * validates the layout and records where each variable sized field starts; nothing is decoded or copied. Fields are
+ * then read on demand through primitive accessors, for example {@link #outputValue(int)} and
+ * {@link #outputScriptHash(int, byte[], int)}, and {@link #toTransaction()} builds the full object only when one is
+ * really needed.</p>
+ *
+ * <p>The view reads from the buffer it was created over, so those bytes must not change while it is in use. Bytes
+ * are in wire order throughout, which for hashes is the order {@link UInt256#toByteArray()} uses.</p>
+ */
+public class TransactionView {
+    private static final int INPUT_SIZE = UInt256.LENGTH + 2;
+    private static final int OUTPUT_SIZE = UInt256.LENGTH + 8 + UInt160.LENGTH;
+
+    // The transaction's bytes, little endian, position 0 at its first byte. Only absolute reads are used.
+    private final ByteBuffer data;
+    private final int unsignedSize;
+    // Offsets of each attribute's usage byte and each witness's invocation script length.
+    private final int[] attributes;
+    private final int[] witnesses;
+    private final int inputsOffset, inputCount;
+    private final int outputsOffset, outputCount;
+
+    private volatile Sha256Hash txid;
+
+    private TransactionView(ByteBuffer data, int unsignedSize, int[] attributes, int inputsOffset, int inputCount,
+                            int outputsOffset, int outputCount, int[] witnesses) {
+        this.data = data;
+        this.unsignedSize = unsignedSize;
+        this.attributes = attributes;
+        this.inputsOffset = inputsOffset;
+        this.inputCount = inputCount;
+        this.outputsOffset = outputsOffset;
+        this.outputCount = outputCount;
+        this.witnesses = witnesses;
+    }
+
+    /** Creates a view over the transaction at the start of {@code bytes}. See {@link #wrap(ByteBuffer)}. */
+    public static TransactionView wrap(byte[] bytes) {
+        return wrap(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Scans one signed transaction from the buffer's position and returns a view of it, leaving the position just
+     * past it. The buffer can be heap, direct or memory-mapped.
+     *
+     * @throws IllegalArgumentException if the data is truncated or malformed. The buffer's position is then
+     *                                  unchanged.
+     */
+    public static TransactionView wrap(ByteBuffer buf) {
+        ByteBuffer scan = buf.slice();
+        NeoBinaryReader reader = new NeoBinaryReader(scan);
+        try {
+            byte txtype = reader.readByte();
+            byte version = reader.readByte();
+            if(txtype == TransactionType.InvocationTransaction) {
+                int length = reader.readLength(1);
+                reader.skip(length + (version >= 1 ? 8 : 0));
+            } else if(txtype != TransactionType.ContractTransaction) {
+                throw new IllegalArgumentException("runtime error: tx type error");
+            }
+
+            int[] attributes = new int[reader.readLength(2)];
+            for(int i = 0; i < attributes.length; i++) {
+                attributes[i] = reader.position();
+                byte usage = reader.readByte();
+                if(usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
+                    reader.skip(32);
+                } else if(usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
+                    reader.skip(32);
+                } else if(usage == AttributeType.Script) {
+                    reader.skip(20);
+                } else if(usage == AttributeType.DescriptionUrl) {
+                    reader.skip(reader.readByte() & 0xFF);
+                } else if(usage == AttributeType.Description || usage >= AttributeType.Remark) {
+                    reader.skip(reader.readLength(1));
+                } else {
+                    throw new IllegalArgumentException("runtime error: attribute type error");
+                }
+            }
+
+            int inputCount = reader.readLength(INPUT_SIZE);
+            int inputsOffset = reader.position();
+            reader.skip(inputCount * INPUT_SIZE);
+            int outputCount = reader.readLength(OUTPUT_SIZE);
+            int outputsOffset = reader.position();
+            reader.skip(outputCount * OUTPUT_SIZE);
+            int unsignedSize = reader.position();
+
+            int[] witnesses = new int[reader.readLength(2)];
+            for(int i = 0; i < witnesses.length; i++) {
+                witnesses[i] = reader.position();
+                reader.skip(reader.readLength(1));
+                reader.skip(reader.readLength(1));
+            }
+
+            int size = reader.position();
+            scan.position(0).limit(size);
+            ByteBuffer data = scan.slice().order(ByteOrder.LITTLE_ENDIAN);
+            buf.position(buf.position() + size);
+            return new TransactionView(data, unsignedSize, attributes, inputsOffset, inputCount, outputsOffset,
+                    outputCount, witnesses);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("runtime error: transaction truncated", e);
+        }
+    }
+
+    /** Returns the number of bytes the transaction takes, witnesses included. */
+    public int size() {
+        return data.limit();
+    }
+
+    /** Returns the number of bytes of the unsigned part, the part that is hashed and signed. */
+    public int getUnsignedSize() {
+        return unsignedSize;
+    }
+
+    public byte getTxtype() {
+        return data.get(0);
+    }
+
+    public byte getVersion() {
+        return data.get(1);
+    }
+
+    /** Returns the SHA-256 of the unsigned part, the hash witnesses sign, hashed straight from the buffer. */
+    public Sha256Hash getMessageHash() {
+        if(data.hasArray()) {
+            return new Sha256Hash(Utils.singleDigest(data.array(), data.arrayOffset(), unsignedSize));
+        }
+        ByteBuffer unsigned = data.duplicate();
+        unsigned.position(0).limit(unsignedSize);
+        return new Sha256Hash(Utils.singleDigest(unsigned));
+    }
+
+    /** Returns the transaction id, computed on first use. See {@link Transaction#getTxid()}. */
+    public Sha256Hash getTxid() {
+        Sha256Hash hash = this.txid;
+        if(hash == null) {
+            hash = Sha256Hash.create(getMessageHash().getBytes());
+            this.txid = hash;
+        }
+        return hash;
+    }
+
+    public int attributeCount() {
+        return attributes.length;
+    }
+
+    public byte attributeUsage(int i) {
+        return data.get(attributes[i]);
+    }
+
+    /**
+     * Returns the length of attribute i's data as it is on the wire. For ECDH keys that is the 32 byte X coordinate,
+     * without the prefix byte that {@link Attribute#getData()} carries.
+     */
+    public int attributeDataLength(int i) {
+        int offset = attributes[i];
+        byte usage = data.get(offset);
+        int length = fixedDataLength(usage);
+        if(length >= 0) {
+            return length;
+        } else if(usage == AttributeType.DescriptionUrl) {
+            return data.get(offset + 1) & 0xFF;
+        }
+        // Description or Remark, the only other usages wrap() accepts.
+        return (int)varIntAt(offset + 1);
+    }
+
+    /** Copies attribute i's data, as on the wire, to {@code dst} at {@code off}. */
+    public void attributeData(int i, byte[] dst, int off) {
+        copy(attributeDataOffset(i), dst, off, attributeDataLength(i));
+    }
+
+    // The offset of attribute i's data, just past its usage byte and any length prefix.
+    private int attributeDataOffset(int i) {
+        int offset = attributes[i] + 1;
+        byte usage = data.get(attributes[i]);
+        if(fixedDataLength(usage) >= 0) {
+            return offset;
+        } else if(usage == AttributeType.DescriptionUrl) {
+            return offset + 1;
+        }
+        return offset + varIntSizeAt(offset);
+    }
+
+    // The size of the data of attributes with this usage, or -1 if a length prefix precedes it.
+    private static int fixedDataLength(byte usage) {
+        if(usage == AttributeType.ContractHash || usage == AttributeType.Vote || (usage >= AttributeType.Hash1 && usage <= AttributeType.Hash15)) {
+            return 32;
+        } else if(usage == AttributeType.ECDH02 || usage == AttributeType.ECDH03) {
+            return 32;
+        } else if(usage == AttributeType.Script) {
+            return 20;
+        }
+        return -1;
+    }
+
+    public int inputCount() {
+        return inputCount;
+    }
+
+    /** Returns the id of the transaction whose output input i spends. */
+    public UInt256 inputHash(int i) {
+        return UInt256.read(data, inputsOffset + checkIndex(i, inputCount) * INPUT_SIZE);
+    }
+
+    /** Copies the 32 byte hash of input i to {@code dst} at {@code off}. */
+    public void inputHash(int i, byte[] dst, int off) {
+        copy(inputsOffset + checkIndex(i, inputCount) * INPUT_SIZE, dst, off, UInt256.LENGTH);
+    }
+
+    /** Returns the index, within its transaction, of the output input i spends. */
+    public int inputIndex(int i) {
+        return data.getShort(inputsOffset + checkIndex(i, inputCount) * INPUT_SIZE + UInt256.LENGTH) & 0xFFFF;
+    }
+
+    public int outputCount() {
+        return outputCount;
+    }
+
+    public UInt256 outputAssetId(int i) {
+        return UInt256.read(data, outputsOffset + checkIndex(i, outputCount) * OUTPUT_SIZE);
+    }
+
+    /** Copies the 32 byte asset id of output i to {@code dst} at {@code off}. */
+    public void outputAssetId(int i, byte[] dst, int off) {
+        copy(outputsOffset + checkIndex(i, outputCount) * OUTPUT_SIZE, dst, off, UInt256.LENGTH);
+    }
+
+    /** Returns the amount of output i, in Fixed8 units. */
+    public long outputValue(int i) {
+        return data.getLong(outputsOffset + checkIndex(i, outputCount) * OUTPUT_SIZE + UInt256.LENGTH);
+    }
+
+    public UInt160 outputScriptHash(int i) {
+        return UInt160.read(data, outputsOffset + checkIndex(i, outputCount) * OUTPUT_SIZE + UInt256.LENGTH + 8);
+    }
+
+    /** Copies the 20 byte script hash that output i pays to {@code dst} at {@code off}. */
+    public void outputScriptHash(int i, byte[] dst, int off) {
+        copy(outputsOffset + checkIndex(i, outputCount) * OUTPUT_SIZE + UInt256.LENGTH + 8, dst, off, UInt160.LENGTH);
+    }
+
+    public int witnessCount() {
+        return witnesses.length;
+    }
+
+    public byte[] witnessInvocationScript(int i) {
+        return varBytesAt(witnesses[i]);
+    }
+
+    public byte[] witnessVerificationScript(int i) {
+        int offset = witnesses[i];
+        return varBytesAt(offset + varIntSizeAt(offset) + (int)varIntAt(offset));
+    }
+
+    /** Decodes the whole transaction into a new {@link Transaction}. */
+    public Transaction toTransaction() {
+        return Transaction.parse(data.duplicate());
+    }
+
+    // Copies length bytes from offset. Heap buffers are copied in one go, others byte by byte with absolute gets.
+    private void copy(int offset, byte[] dst, int off, int length) {
+        if(data.hasArray()) {
+            System.arraycopy(data.array(), data.arrayOffset() + offset, dst, off, length);
+        } else {
+            for(int j = 0; j < length; j++) {
+                dst[off + j] = data.get(offset + j);
+            }
+        }
+    }
+
+    // The var int at offset. wrap() has already checked that every length fits in the data.
+    private long varIntAt(int offset) {
+        int first = data.get(offset) & 0xFF;
+        if(first < 253) {
+            return first;
+        } else if(first == 253) {
+            return data.getShort(offset + 1) & 0xFFFF;
+        } else if(first == 254) {
+            return data.getInt(offset + 1) & 0xFFFFFFFFL;
+        }
+        return data.getLong(offset + 1);
+    }
+
+    // The number of bytes the var int at offset takes.
+    private int varIntSizeAt(int offset) {
+        int first = data.get(offset) & 0xFF;
+        return first < 253 ? 1 : first == 253 ? 3 : first == 254 ? 5 : 9;
+    }
+
+    // A copy of the var int prefixed bytes at offset.
+    private byte[] varBytesAt(int offset) {
+        byte[] bytes = new byte[(int)varIntAt(offset)];
+        copy(offset + varIntSizeAt(offset), bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static int checkIndex(int i, int count) {
+        if(i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("index " + i + " out of " + count);
+        }
+        return i;
+    }
+}
@@ -1,22 +1,46 @@
 package neo;
 
+import core.AddressCache;
+import core.Hash160;
+import core.UInt160;
 import core.Utils;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 @Data
 public class Witness {
     private byte[] InvocationScript;
     private byte[] VerificationScript;
 
+    // Hash160 of the verification script, computed on first use and dropped when the script is replaced.
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private transient volatile UInt160 scriptHash;
+
+    public void setVerificationScript(byte[] verificationScript) {
+        this.VerificationScript = verificationScript;
+        this.scriptHash = null;
+    }
+
+    /** Returns the script hash of the verification script, which is what witnesses are keyed and sorted by. */
+    public UInt160 getScriptHash() {
+        UInt160 hash = this.scriptHash;
+        if(hash == null) {
+            byte[] bytes = new byte[Hash160.LENGTH];
+            Utils.sha256hash160(this.VerificationScript, 0, this.VerificationScript.length, bytes, 0);
+            hash = UInt160.fromBytes(bytes);
+            this.scriptHash = hash;
+        }
+        return hash;
+    }
+
     public String getAddress() {
-        byte[] hash = Helper.getScriptHashFromScript(this.VerificationScript);
-        String address = Helper.getAddressFromScriptHash(hash);
-        return address;
+        return AddressCache.getAddress(getScriptHash());
     }
 
     public String getHashStr() {
-        byte[] hash = Helper.getScriptHashFromScript(this.VerificationScript);
-        return Utils.bytesToHexString(hash);
+        return Utils.bytesToHexString(getScriptHash().toByteArray());
     }
 
     public boolean issSmartContract() {
@@ -26,7 +50,7 @@ public class Witness {
         if(this.VerificationScript[0] != this.VerificationScript.length - 2) {
             return true;
         }
-        if(this.VerificationScript[this.VerificationScript.length - 1] != 0xac) {
+        if(this.VerificationScript[this.VerificationScript.length - 1] != (byte)0xac) {
             return true;
         }
         return false;
@@ -0,0 +1,197 @@
+package core;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Differential tests of the 25 byte Base58 fast path. {@link Base58#encode25}, {@link Base58#decode25} and
+ * {@link Base58#decodeChecked25} must agree with a plain BigInteger codec, and with {@link Base58#encode},
+ * {@link Base58#decode} and {@link Base58#decodeChecked}, on every input.
+ */
+public class Base58Test {
+    private static final String ALPHABET = new String(Base58.ALPHABET);
+
+    // All zero, every run of leading zeros, all 0xFF and leading 0xFF, then seeded random values.
+    private static List<byte[]> values() {
+        List<byte[]> values = new ArrayList<byte[]>();
+        Random random = new Random(13);
+        for (int zeros = 0; zeros <= Base58.ADDRESS_LENGTH; zeros++) {
+            byte[] value = new byte[Base58.ADDRESS_LENGTH];
+            random.nextBytes(value);
+            Arrays.fill(value, 0, zeros, (byte) 0);
+            if (zeros < value.length && value[zeros] == 0)
+                value[zeros] = 1;
+            values.add(value);
+        }
+        byte[] ones = new byte[Base58.ADDRESS_LENGTH];
+        Arrays.fill(ones, (byte) 0xFF);
+        values.add(ones);
+        byte[] low = new byte[Base58.ADDRESS_LENGTH];
+        low[Base58.ADDRESS_LENGTH - 1] = 1;
+        values.add(low);
+        for (int i = 0; i < 200; i++) {
+            byte[] value = new byte[Base58.ADDRESS_LENGTH];
+            random.nextBytes(value);
+            values.add(value);
+        }
+        return values;
+    }
+
+    // Leading zero bytes become '1's, the rest is the value in base58.
+    private static String referenceEncode(byte[] input) {
+        StringBuilder digits = new StringBuilder();
+        BigInteger value = new BigInteger(1, input);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] qr = value.divideAndRemainder(base);
+            digits.append(ALPHABET.charAt(qr[1].intValue()));
+            value = qr[0];
+        }
+        for (int i = 0; i < input.length && input[i] == 0; i++)
+            digits.append(ALPHABET.charAt(0));
+        return digits.reverse().toString();
+    }
+
+    // Leading '1's become zero bytes, the rest is the value's significant bytes. Null if a character is invalid.
+    private static byte[] referenceDecode(String input) {
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 0; i < input.length(); i++) {
+            int digit = ALPHABET.indexOf(input.charAt(i));
+            if (digit < 0)
+                return null;
+            value = value.multiply(BigInteger.valueOf(58)).add(BigInteger.valueOf(digit));
+        }
+        int zeros = 0;
+        while (zeros < input.length() && input.charAt(zeros) == ALPHABET.charAt(0))
+            zeros++;
+        byte[] magnitude = value.signum() == 0 ? new byte[0] : value.toByteArray();
+        if (magnitude.length > 0 && magnitude[0] == 0)
+            magnitude = Arrays.copyOfRange(magnitude, 1, magnitude.length);
+        byte[] out = new byte[zeros + magnitude.length];
+        System.arraycopy(magnitude, 0, out, zeros, magnitude.length);
+        return out;
+    }
+
+    private static byte[] withChecksum(byte[] payload) {
+        byte[] out = Arrays.copyOf(payload, payload.length + 4);
+        System.arraycopy(Utils.doubleDigest(payload), 0, out, payload.length, 4);
+        return out;
+    }
+
+    @Test
+    public void encode() {
+        for (byte[] value : values()) {
+            String expected = referenceEncode(value);
+            byte[] input = new byte[value.length + 3];
+            System.arraycopy(value, 0, input, 3, value.length);
+            char[] out = new char[Base58.MAX_ADDRESS_CHARS + 2];
+            int n = Base58.encode25(input, 3, out, 2);
+            assertEquals(expected, new String(out, 2, n));
+            assertEquals(expected, Base58.encode(value));
+        }
+    }
+
+    @Test
+    public void decode() throws AddressFormatException {
+        for (byte[] value : values()) {
+            String text = referenceEncode(value);
+            byte[] out = new byte[Base58.ADDRESS_LENGTH + 2];
+            assertTrue(text, Base58.decode25(text, out, 2));
+            assertArrayEquals(text, value, Arrays.copyOfRange(out, 2, out.length));
+            assertArrayEquals(text, value, Base58.decode(text));
+        }
+    }
+
+    @Test
+    public void otherLengths() throws AddressFormatException {
+        Random random = new Random(14);
+        List<String> inputs = new ArrayList<String>();
+        for (int length = 0; length <= 40; length++) {
+            byte[] value = new byte[length];
+            random.nextBytes(value);
+            inputs.add(referenceEncode(value));
+            if (length > 0) {
+                value[0] = 0;
+                inputs.add(referenceEncode(value));
+            }
+        }
+        // Random strings of every length around the 25 byte range, including ones too big for 25 bytes.
+        for (int length = 1; length <= Base58.MAX_ADDRESS_CHARS + 1; length++) {
+            for (int i = 0; i < 20; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int k = 0; k < length; k++)
+                    text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                inputs.add(text.toString());
+            }
+        }
+        inputs.add("zzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzzz");
+        inputs.add("1111111111111111111111111");
+        inputs.add("11111111111111111111111111");
+        for (String text : inputs) {
+            byte[] expected = referenceDecode(text);
+            byte[] out = new byte[Base58.ADDRESS_LENGTH];
+            boolean is25 = expected.length == Base58.ADDRESS_LENGTH;
+            assertEquals(text, is25, Base58.decode25(text, out, 0));
+            if (is25)
+                assertArrayEquals(text, expected, out);
+            assertArrayEquals(text, expected, Base58.decode(text));
+        }
+    }
+
+    @Test
+    public void invalidCharacters() {
+        String valid = referenceEncode(values().get(5));
+        for (char c : new char[]{'0', 'O', 'I', 'l', '+', ' ', '\u00e9', '\u4e2d'}) {
+            for (int position : new int[]{0, valid.length() / 2, valid.length() - 1}) {
+                String text = valid.substring(0, position) + c + valid.substring(position + 1);
+                assertNull(referenceDecode(text));
+                assertFalse(text, Base58.decode25(text, new byte[Base58.ADDRESS_LENGTH], 0));
+                assertFalse(text, Base58.decodeChecked25(text, new byte[Base58.ADDRESS_LENGTH], 0));
+                try {
+                    Base58.decode(text);
+                    fail(text);
+                } catch (AddressFormatException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decodeChecked() throws AddressFormatException {
+        for (byte[] value : values()) {
+            byte[] payload = Arrays.copyOf(value, Base58.ADDRESS_LENGTH - 4);
+            byte[] checked = withChecksum(payload);
+            String text = referenceEncode(checked);
+            byte[] out = new byte[Base58.ADDRESS_LENGTH];
+            assertTrue(text, Base58.decodeChecked25(text, out, 0));
+            assertArrayEquals(text, checked, out);
+            assertArrayEquals(text, payload, Base58.decodeChecked(text));
+
+            checked[Base58.ADDRESS_LENGTH - 1] ^= 1;
+            String corrupt = referenceEncode(checked);
+            assertFalse(corrupt, Base58.decodeChecked25(corrupt, out, 0));
+            try {
+                Base58.decodeChecked(corrupt);
+                fail(corrupt);
+            } catch (AddressFormatException expected) {
+            }
+        }
+        // A valid checksum over a value of the wrong length is still not a 25 byte value.
+        String short24 = referenceEncode(withChecksum(new byte[]{23, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+                16, 17, 18, 19}));
+        assertFalse(short24, Base58.decodeChecked25(short24, new byte[Base58.ADDRESS_LENGTH], 0));
+        assertEquals(20, Base58.decodeChecked(short24).length);
+    }
+}
@@ -0,0 +1,171 @@
+package core;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.BigIntegers;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Differential tests of the specialised P-256 backend against the generic curve. Each scalar, key and signature goes
+ * through both {@link CurveBackend}s directly and through {@link ECKey}, and all results must agree.
+ */
+public class CurveBackendTest {
+    private static final ECDomainParameters GENERIC = CurveBackend.GENERIC.domain();
+    private static final ECDomainParameters OPTIMIZED = CurveBackend.OPTIMIZED.domain();
+    private static final BigInteger N = GENERIC.getN();
+
+    // Edge cases around the group order and the field prime, then seeded random scalars.
+    private static List<BigInteger> scalars() {
+        BigInteger p = GENERIC.getCurve().getField().getCharacteristic();
+        List<BigInteger> scalars = new ArrayList<BigInteger>();
+        scalars.add(BigInteger.ONE);
+        scalars.add(BigInteger.valueOf(2));
+        scalars.add(BigInteger.valueOf(3));
+        scalars.add(N.subtract(BigInteger.ONE));
+        scalars.add(N.subtract(BigInteger.valueOf(2)));
+        scalars.add(N.shiftRight(1));
+        scalars.add(N.shiftRight(1).add(BigInteger.ONE));
+        scalars.add(BigInteger.ONE.shiftLeft(128));
+        scalars.add(BigInteger.ONE.shiftLeft(255));
+        scalars.add(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE).mod(N));
+        scalars.add(p.mod(N));
+        Random random = new Random(6);
+        for (int i = 0; i < 100; i++) {
+            BigInteger d = new BigInteger(256, random).mod(N);
+            if (d.signum() != 0)
+                scalars.add(d);
+        }
+        return scalars;
+    }
+
+    @Test
+    public void publicKeys() {
+        for (BigInteger d : scalars()) {
+            for (boolean compressed : new boolean[]{true, false}) {
+                byte[] generic = GENERIC.getG().multiply(d).getEncoded(compressed);
+                assertArrayEquals(d.toString(16), generic, OPTIMIZED.getG().multiply(d).getEncoded(compressed));
+                assertArrayEquals(d.toString(16), generic, ECKey.publicKeyFromPrivate(d, compressed));
+            }
+        }
+    }
+
+    @Test
+    public void sign() {
+        Random random = new Random(7);
+        for (BigInteger d : scalars()) {
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            BigInteger[] generic = deterministicSign(GENERIC, d, hash);
+            BigInteger[] optimized = deterministicSign(OPTIMIZED, d, hash);
+            assertEquals(d.toString(16), generic[0], optimized[0]);
+            assertEquals(d.toString(16), generic[1], optimized[1]);
+
+            ECKey key = new ECKey(d, null, true);
+            key.setDeterministicSigning(true);
+            ECKey.ECDSASignature signature = key.sign(new Sha256Hash(hash));
+            assertEquals(d.toString(16), generic[0], signature.r);
+            assertEquals(d.toString(16), generic[1], signature.s);
+        }
+    }
+
+    @Test
+    public void verify() {
+        Random random = new Random(8);
+        for (BigInteger d : scalars()) {
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            BigInteger[] rs = deterministicSign(GENERIC, d, hash);
+            byte[] good = neoSignature(rs[0], rs[1]);
+            byte[] flipped = good.clone();
+            flipped[random.nextInt(64)] ^= 1 << random.nextInt(8);
+            byte[][] signatures = {
+                    good,
+                    flipped,
+                    neoSignature(rs[0], N.subtract(rs[1])),
+                    neoSignature(BigInteger.ONE, BigInteger.ONE),
+                    neoSignature(N.subtract(BigInteger.ONE), N.subtract(BigInteger.ONE)),
+            };
+            for (boolean compressed : new boolean[]{true, false}) {
+                byte[] pub = ECKey.publicKeyFromPrivate(d, compressed);
+                for (byte[] signature : signatures) {
+                    boolean expected = genericVerify(GENERIC, pub, hash, signature);
+                    String message = d.toString(16) + " " + Utils.bytesToHexString(signature);
+                    assertEquals(message, expected, genericVerify(OPTIMIZED, pub, hash, signature));
+                    assertEquals(message, expected, ECKey.neoVerify(hash, signature, pub));
+                }
+            }
+            assertEquals(true, ECKey.neoVerify(hash, good, ECKey.publicKeyFromPrivate(d, true)));
+        }
+    }
+
+    @Test
+    public void decompress() {
+        for (BigInteger d : scalars()) {
+            byte[] compressed = ECKey.publicKeyFromPrivate(d, true);
+            byte[] generic = GENERIC.getCurve().decodePoint(compressed).getEncoded(false);
+            assertArrayEquals(d.toString(16), generic, OPTIMIZED.getCurve().decodePoint(compressed).getEncoded(false));
+            assertArrayEquals(d.toString(16), generic, ECKey.decompressPubKey(compressed));
+        }
+        // Small x coordinates with both parities, about half of which are not on the curve. Both backends and ECKey
+        // must accept and reject the same ones.
+        for (int x = 0; x < 64; x++) {
+            for (int prefix = 2; prefix <= 3; prefix++) {
+                byte[] compressed = new byte[33];
+                compressed[0] = (byte) prefix;
+                compressed[32] = (byte) x;
+                String generic = decode(GENERIC, compressed);
+                assertEquals(x + "/" + prefix, generic, decode(OPTIMIZED, compressed));
+                String viaKey;
+                try {
+                    viaKey = Utils.bytesToHexString(ECKey.decompressPubKey(compressed));
+                } catch (IllegalArgumentException e) {
+                    viaKey = "invalid";
+                }
+                assertEquals(x + "/" + prefix, generic, viaKey);
+            }
+        }
+    }
+
+    private static BigInteger[] deterministicSign(ECDomainParameters domain, BigInteger d, byte[] hash) {
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+        signer.init(true, new ECPrivateKeyParameters(d, domain));
+        return signer.generateSignature(hash);
+    }
+
+    private static boolean genericVerify(ECDomainParameters domain, byte[] pub, byte[] hash, byte[] signature) {
+        ECPoint q = domain.getCurve().decodePoint(pub);
+        ECDSASigner signer = new ECDSASigner();
+        signer.init(false, new ECPublicKeyParameters(q, domain));
+        return signer.verifySignature(hash, new BigInteger(1, Arrays.copyOfRange(signature, 0, 32)),
+                new BigInteger(1, Arrays.copyOfRange(signature, 32, 64)));
+    }
+
+    private static byte[] neoSignature(BigInteger r, BigInteger s) {
+        byte[] signature = new byte[64];
+        System.arraycopy(BigIntegers.asUnsignedByteArray(32, r), 0, signature, 0, 32);
+        System.arraycopy(BigIntegers.asUnsignedByteArray(32, s), 0, signature, 32, 32);
+        return signature;
+    }
+
+    private static String decode(ECDomainParameters domain, byte[] compressed) {
+        try {
+            return Utils.bytesToHexString(domain.getCurve().decodePoint(compressed).getEncoded(false));
+        } catch (IllegalArgumentException e) {
+            return "invalid";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package core;
+
+import neo.Helper;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Deterministic signing against the P-256, SHA-256 vectors of RFC 6979, appendix A.2.5. */
+public class ECKeyRfc6979Test {
+    private static final BigInteger X = hex("c9afa9d845ba75166b5c215767b1d6934e50c3db36e89b127b8a622b120f6721");
+    private static final String UX = "60fed4ba255a9d31c961eb74c6356d68c049b8923b61fa6ce669622e60f29fb6";
+    private static final String UY = "7903fe1008b8bc99a41ae9e95628bc64f2f1b20c2d7e9f5177a3c294d4462299";
+
+    private static final String[][] VECTORS = {
+            // message, k, r, s
+            {"sample",
+                    "a6e3c57dd01abe90086538398355dd4c3b17aa873382b0f24d6129493d8aad60",
+                    "efd48b2aacb6a8fd1140dd9cd45e81d69d2c877b56aaf991c34d0ea84eaf3716",
+                    "f7cb1c942d657c41d436c7a1b6e29f65f3e900dbb9aff4064dc4ab2f843acda8"},
+            {"test",
+                    "d16b6ae827f17175e040871a1c7ec3500192c4c92677336ec2537acaee0008e0",
+                    "f1abb023518351cd71d881567b1ea663ed3efcf6c5132b354f28d3b0b7d38367",
+                    "019f4113742a2b14bd25926b49c649155f267e60d3814b4c0cc84250e46f0083"},
+    };
+
+    @Test
+    public void publicKey() {
+        assertEquals("04" + UX + UY, Utils.bytesToHexString(ECKey.publicKeyFromPrivate(X, false)));
+    }
+
+    @Test
+    public void nonce() {
+        for (String[] vector : VECTORS) {
+            HMacDSAKCalculator calculator = new HMacDSAKCalculator(new SHA256Digest());
+            calculator.init(ECKey.getCurveOrder(), X, hash(vector[0]).getBytes());
+            assertEquals(vector[0], hex(vector[1]), calculator.nextK());
+        }
+    }
+
+    @Test
+    public void sign() {
+        ECKey key = new ECKey(X, null, true);
+        key.setDeterministicSigning(true);
+        for (String[] vector : VECTORS) {
+            ECKey.ECDSASignature signature = key.sign(hash(vector[0]));
+            assertEquals(vector[0], hex(vector[2]), signature.r);
+            assertEquals(vector[0], hex(vector[3]), signature.s);
+        }
+    }
+
+    @Test
+    public void helperSign() {
+        ECKey key = new ECKey(X, null, true);
+        key.setDeterministicSigning(true);
+        for (String[] vector : VECTORS) {
+            Sha256Hash hash = hash(vector[0]);
+            byte[] signature = Helper.sign(hash, key);
+            assertArrayEquals(vector[0], Utils.hexStringToBytes(vector[2] + vector[3]), signature);
+            assertTrue(vector[0], ECKey.neoVerify(hash.getBytes(), signature, key.getPubKey()));
+        }
+    }
+
+    @Test
+    public void repeatable() {
+        ECKey key = new ECKey(X, null, true);
+        key.setDeterministicSigning(true);
+        Sha256Hash hash = hash("sample");
+        ECKey.ECDSASignature first = key.sign(hash);
+        for (int i = 0; i < 10; i++) {
+            ECKey.ECDSASignature again = key.sign(hash);
+            assertEquals(first.r, again.r);
+            assertEquals(first.s, again.s);
+        }
+    }
+
+    private static Sha256Hash hash(String message) {
+        return Sha256Hash.create(message.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static BigInteger hex(String hex) {
+        return new BigInteger(hex, 16);
+    }
+}
@@ -0,0 +1,141 @@
+package core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** {@link NeoBinaryWriter} output read back by {@link NeoBinaryReader} over heap, direct and stream sources. */
+public class NeoBinaryReaderTest {
+    // Every var int width on both sides of each boundary.
+    private static final long[] VAR_INTS = {0, 1, 252, 253, 254, 255, 0xFFFF, 0x10000, 0xFFFFFFFFL, 0x100000000L,
+            Long.MAX_VALUE};
+
+    private static final UInt256 HASH =
+            UInt256.parse("c56f33fc6ecfcd0c225c4ab356fee59390af8560be0e930faebe74a6daff7c9b");
+    private static final UInt160 SCRIPT_HASH = UInt160.parse("5edc8e4e9b5d22de8858cb1615590fa7f5ced259");
+
+    private static byte[] written() {
+        NeoBinaryWriter writer = new NeoBinaryWriter(1);
+        for (long value : VAR_INTS)
+            writer.writeVarInt(value);
+        writer.writeUInt16LE(0xBEEF).writeInt32LE(-2).writeUInt32LE(0xFFFFFFFEL).writeInt64LE(Long.MIN_VALUE);
+        writer.writeVarBytes(new byte[300]).writeUInt256(HASH).writeUInt160(SCRIPT_HASH).writeByte(0x7f);
+        return writer.toByteArray();
+    }
+
+    private static NeoBinaryReader[] readers(byte[] bytes) {
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return new NeoBinaryReader[]{new NeoBinaryReader(bytes), new NeoBinaryReader(direct),
+                new NeoBinaryReader(new ByteArrayInputStream(bytes))};
+    }
+
+    private static void readAll(NeoBinaryReader reader) {
+        for (long value : VAR_INTS)
+            assertEquals(value, reader.readVarInt());
+        assertEquals(0xBEEF, reader.readUInt16LE());
+        assertEquals(-2, reader.readInt32LE());
+        assertEquals(0xFFFFFFFEL, reader.readUInt32LE());
+        assertEquals(Long.MIN_VALUE, reader.readInt64LE());
+        assertArrayEquals(new byte[300], reader.readVarBytes());
+        assertEquals(HASH, reader.readUInt256());
+        assertEquals(SCRIPT_HASH, reader.readUInt160());
+        assertEquals(0x7f, reader.readByte());
+    }
+
+    @Test
+    public void varIntEncoding() {
+        String[] expected = {"00", "01", "fc", "fdfd00", "fdfe00", "fdff00", "fdffff", "fe00000100", "feffffffff",
+                "ff0000000001000000", "ffffffffffffffff7f"};
+        for (int i = 0; i < VAR_INTS.length; i++) {
+            byte[] bytes = new NeoBinaryWriter(0).writeVarInt(VAR_INTS[i]).toByteArray();
+            assertEquals(expected[i], Utils.bytesToHexString(bytes));
+            assertEquals(new VarInt(VAR_INTS[i]).getSizeInBytes(), bytes.length);
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        byte[] bytes = written();
+        for (NeoBinaryReader reader : readers(bytes)) {
+            readAll(reader);
+            assertEquals(bytes.length, reader.position());
+            assertEquals(0, reader.remaining());
+        }
+    }
+
+    @Test
+    public void truncated() {
+        byte[] bytes = written();
+        for (int length = 0; length < bytes.length; length++) {
+            for (NeoBinaryReader reader : readers(Arrays.copyOf(bytes, length))) {
+                try {
+                    readAll(reader);
+                    fail("read " + length + " of " + bytes.length + " bytes");
+                } catch (IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lengthBeyondRemaining() {
+        byte[] bytes = new NeoBinaryWriter(0).writeVarInt(10).write(new byte[19]).toByteArray();
+        for (NeoBinaryReader reader : readers(bytes)) {
+            try {
+                reader.readLength(2);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        bytes = new NeoBinaryWriter(0).writeVarInt(-1).toByteArray();
+        for (NeoBinaryReader reader : readers(bytes)) {
+            try {
+                reader.readLength(1);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void streamLeftInPlace() {
+        byte[] bytes = written();
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(0x55);
+        input.write(bytes, 0, bytes.length);
+        input.write(new byte[3], 0, 3);
+        ByteArrayInputStream in = new ByteArrayInputStream(input.toByteArray());
+        assertEquals(0x55, in.read());
+        in.mark(0);
+
+        NeoBinaryReader reader = new NeoBinaryReader(in);
+        readAll(reader);
+        assertEquals(bytes.length, reader.position());
+        assertEquals(3, in.available());
+        in.reset();
+        assertEquals(bytes.length + 3, in.available());
+    }
+
+    @Test
+    public void fixedBufferOverflows() {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        NeoBinaryWriter writer = NeoBinaryWriter.get(buf);
+        writer.writeInt32LE(1);
+        try {
+            writer.writeByte(0);
+            fail();
+        } catch (BufferOverflowException expected) {
+        }
+        writer.release();
+        assertEquals(0, writer.buffer().capacity());
+    }
+}
@@ -0,0 +1,137 @@
+package neo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Reads small files through windows far smaller than the files, so transactions straddle window boundaries. */
+public class TransactionFileReaderTest {
+    private static final int WINDOW = 1000;
+    private static final long CHECKPOINT = 700;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Path> files = new ArrayList<Path>();
+    private final List<Path> expectedFiles = new ArrayList<Path>();
+    private final List<Long> expectedOffsets = new ArrayList<Long>();
+    private final List<byte[]> expectedBytes = new ArrayList<byte[]>();
+
+    // Writes a file of count transactions cycling through the parser samples, with remarks of varying length so no
+    // two neighbours line up the same way against the window.
+    private Path writeFile(String name, int count) throws IOException {
+        Path file = folder.newFile(name).toPath();
+        List<byte[]> samples = TransactionParseTest.samples();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            Transaction tx = Transaction.parse(ByteBuffer.wrap(samples.get(i % samples.size())));
+            Attribute remark = new Attribute();
+            remark.setUsage(AttributeType.Remark);
+            remark.setData(new byte[i * 13 % 97]);
+            List<Attribute> attributes = new ArrayList<Attribute>(tx.getAttributes());
+            attributes.add(remark);
+            tx.setAttributes(attributes);
+            byte[] raw = tx.getRawData();
+            expectedFiles.add(file);
+            expectedOffsets.add((long) out.size());
+            expectedBytes.add(raw);
+            out.write(raw);
+        }
+        Files.write(file, out.toByteArray());
+        files.add(file);
+        return file;
+    }
+
+    private void writeFiles() throws IOException {
+        writeFile("a.tx", 30);
+        writeFile("empty.tx", 0);
+        writeFile("b.tx", 17);
+        // The test is only worth something if some transaction runs past the end of the first window.
+        boolean straddles = false;
+        for (int i = 0; i < expectedBytes.size() && expectedFiles.get(i).equals(files.get(0)); i++) {
+            long start = expectedOffsets.get(i);
+            straddles |= start < WINDOW && start + expectedBytes.get(i).length > WINDOW;
+        }
+        assertTrue(straddles);
+    }
+
+    private void assertExpected(List<TransactionFileReader.Entry> entries) {
+        assertEquals(expectedBytes.size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            TransactionFileReader.Entry entry = entries.get(i);
+            assertEquals(expectedFiles.get(i), entry.getFile());
+            assertEquals((long) expectedOffsets.get(i), entry.getOffset());
+            byte[] raw = entry.getTransaction().toTransaction().getRawData();
+            assertArrayEquals("transaction " + i, expectedBytes.get(i), raw);
+        }
+    }
+
+    @Test
+    public void forEachAcrossWindows() throws Exception {
+        writeFiles();
+        final List<TransactionFileReader.Entry> entries = new ArrayList<TransactionFileReader.Entry>();
+        try (TransactionFileReader reader = new TransactionFileReader(WINDOW, CHECKPOINT, files.toArray(new Path[0]))) {
+            reader.forEach(new TransactionFileReader.Callback() {
+                public void accept(TransactionFileReader.Entry entry) {
+                    entries.add(entry);
+                }
+            });
+        }
+        assertExpected(entries);
+    }
+
+    @Test
+    public void streams() throws Exception {
+        writeFiles();
+        try (TransactionFileReader reader = new TransactionFileReader(WINDOW, CHECKPOINT, files.toArray(new Path[0]))) {
+            assertExpected(reader.stream(false).collect(Collectors.<TransactionFileReader.Entry>toList()));
+            assertExpected(reader.stream(true).collect(Collectors.<TransactionFileReader.Entry>toList()));
+        }
+    }
+
+    @Test
+    public void transactionLargerThanWindow() throws Exception {
+        writeFiles();
+        try (TransactionFileReader reader = new TransactionFileReader(200, CHECKPOINT, files.toArray(new Path[0]))) {
+            reader.forEach(new TransactionFileReader.Callback() {
+                public void accept(TransactionFileReader.Entry entry) {
+                }
+            });
+            fail("read transactions larger than the window");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void truncatedFile() throws Exception {
+        Path file = writeFile("a.tx", 5);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        final List<TransactionFileReader.Entry> entries = new ArrayList<TransactionFileReader.Entry>();
+        try (TransactionFileReader reader = new TransactionFileReader(WINDOW, CHECKPOINT, file)) {
+            reader.forEach(new TransactionFileReader.Callback() {
+                public void accept(TransactionFileReader.Entry entry) {
+                    entries.add(entry);
+                }
+            });
+            fail("read a truncated file");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(4, entries.size());
+    }
+}
@@ -0,0 +1,148 @@
+package neo;
+
+import core.Utils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** {@link Transaction#parse(ByteBuffer)} on heap and direct buffers, and on truncated and corrupted input. */
+public class TransactionParseTest {
+    // A signed NEO transfer (one input, two outputs) and a signed NEP-5 transfer invocation, one witness each.
+    static final String CONTRACT = "8001000130a85ceb47b78759f741658f59fa5de9aa02027713d6e24aa2c90c5cfc650fb8"
+            + "0000029b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc500e1f5050000000059d2cef5a70f5915"
+            + "16cb5888de225d9b4e8edc5e9b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc50003164e0200"
+            + "00006bc68ea188bf198f4a4dd8aedc0ffd0f28677fad014140a461104239691b42f0ae49247fdfc367e0aad84d86ddbe2dfd0e"
+            + "2ad883ff63eee99aa66e4f8263e50d232e3d0e310603062e523fbbc78ae34efaf67ef1c245bf2321027a6b334edede8ff1db38"
+            + "641f4e2d3907733cee19c373ae0fee5d1304ef68d39eac";
+    static final String INVOCATION = "d1014d146bc68ea188bf198f4a4dd8aedc0ffd0f28677fad1459d2cef5a70f591516cb"
+            + "5888de225d9b4e8edc5e0405f5e100087472616e7366657267b8b78b3a2a453c08f0ddedbdcd62038aaeca8ac800e1f50500"
+            + "00000000013b0fa0e277176474a03cc2a8f5d4a9ddd9209969a0ffc5ff4c16e8ae77d633d2000001e72d286979ee6cb1b7e6"
+            + "5dfddfb2e384100b8d148e7758de42e4168b71792c6000e9a435000000006bc68ea188bf198f4a4dd8aedc0ffd0f28677fad"
+            + "014140a133edf16833aa822dcc38735f101d477dd8ffca67b27c42d42b8f6d4926906e22afabe4a660cbe95823bfe9ecad20a3"
+            + "c924f481888783f31744c86c4f931fbb2321027a6b334edede8ff1db38641f4e2d3907733cee19c373ae0fee5d1304ef68d39e"
+            + "ac";
+
+    /** The two signed samples, then the contract one with an attribute of each length-prefixed kind added. */
+    static List<byte[]> samples() {
+        List<byte[]> samples = new ArrayList<byte[]>();
+        samples.add(Utils.hexStringToBytes(CONTRACT));
+        samples.add(Utils.hexStringToBytes(INVOCATION));
+
+        Transaction tx = Transaction.parse(ByteBuffer.wrap(Utils.hexStringToBytes(CONTRACT)));
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        byte[][] data = {new byte[20], new byte[32], "https://neo.org/".getBytes(), new byte[300], new byte[0]};
+        byte[] usages = {AttributeType.Script, AttributeType.Hash3, AttributeType.DescriptionUrl,
+                AttributeType.Description, AttributeType.Remark7};
+        for (int i = 0; i < usages.length; i++) {
+            Arrays.fill(data[i], (byte) (i + 1));
+            Attribute attribute = new Attribute();
+            attribute.setUsage(usages[i]);
+            attribute.setData(data[i]);
+            attributes.add(attribute);
+        }
+        tx.setAttributes(attributes);
+        samples.add(tx.getRawData());
+        return samples;
+    }
+
+    @Test
+    public void heapAndDirect() {
+        for (byte[] raw : samples()) {
+            ByteBuffer heap = ByteBuffer.allocate(raw.length + 5);
+            heap.put(new byte[3]).put(raw).put(new byte[2]);
+            heap.position(3);
+            ByteBuffer direct = ByteBuffer.allocateDirect(raw.length + 5).order(ByteOrder.LITTLE_ENDIAN);
+            direct.put(new byte[3]).put(raw).put(new byte[2]);
+            direct.position(3);
+
+            for (ByteBuffer buf : new ByteBuffer[]{heap, direct}) {
+                ByteOrder order = buf.order();
+                Transaction tx = Transaction.parse(buf);
+                assertArrayEquals(raw, tx.getRawData());
+                assertEquals(3 + raw.length, buf.position());
+                assertEquals(order, buf.order());
+            }
+        }
+    }
+
+    @Test
+    public void backToBack() {
+        List<byte[]> samples = samples();
+        ByteBuffer buf = ByteBuffer.allocateDirect(3 * 4096);
+        for (byte[] raw : samples)
+            buf.put(raw);
+        buf.flip();
+        for (byte[] raw : samples)
+            assertArrayEquals(raw, Transaction.parse(buf).getRawData());
+        assertEquals(0, buf.remaining());
+    }
+
+    @Test
+    public void truncated() {
+        for (byte[] raw : samples()) {
+            for (int length = 0; length < raw.length; length++) {
+                try {
+                    Transaction.parse(ByteBuffer.wrap(raw, 0, length));
+                    fail("parsed " + length + " of " + raw.length + " bytes");
+                } catch (IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void malformed() {
+        byte[] raw = Utils.hexStringToBytes(CONTRACT);
+        // Unknown transaction type.
+        assertMalformed(raw, 0, (byte) 0x42);
+        // Attribute count far beyond the bytes left, and an unknown attribute usage.
+        assertMalformed(raw, 2, (byte) 0xfc);
+        StringBuilder withScript = new StringBuilder(CONTRACT.substring(0, 4)).append("0120");
+        for (int i = 0; i < 20; i++)
+            withScript.append("00");
+        byte[] withAttribute = Utils.hexStringToBytes(withScript.append(CONTRACT.substring(6)).toString());
+        assertEquals(raw.length + 21, Transaction.parse(ByteBuffer.wrap(withAttribute)).getRawData().length);
+        assertMalformed(withAttribute, 3, (byte) 0x85);
+        // Input count, output count and witness count far beyond the bytes left.
+        assertMalformed(raw, 3, (byte) 0xfe);
+        assertMalformed(raw, 4 + 34, (byte) 0xff);
+        assertMalformed(raw, raw.length - 0x67, (byte) 0xfd);
+    }
+
+    // Changing raw[index] to value must make parse throw IllegalArgumentException.
+    private static void assertMalformed(byte[] raw, int index, byte value) {
+        byte[] corrupt = raw.clone();
+        corrupt[index] = value;
+        try {
+            Transaction.parse(ByteBuffer.wrap(corrupt));
+            fail("parsed with byte " + index + " set to " + value);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void corrupted() {
+        // Any single byte changed either still parses or is rejected with IllegalArgumentException, never anything
+        // else, such as an allocation sized from a bogus count.
+        for (byte[] raw : samples()) {
+            for (int i = 0; i < raw.length; i++) {
+                for (int value : new int[]{0x00, 0x01, 0x7f, 0x80, 0xfd, 0xfe, 0xff}) {
+                    byte[] corrupt = raw.clone();
+                    corrupt[i] = (byte) value;
+                    try {
+                        Transaction.parse(ByteBuffer.wrap(corrupt));
+                    } catch (IllegalArgumentException expected) {
+                    }
+                }
+            }
+        }
+    }
+}
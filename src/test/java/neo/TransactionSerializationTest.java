@@ -0,0 +1,169 @@
+package neo;
+
+import core.UInt160;
+import core.UInt256;
+import core.Utils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Serialization of transactions with attributes, against a hand-assembled vector and through parse round trips. */
+public class TransactionSerializationTest {
+    // A contract transaction with three attributes, one input and one output, field by field in NEO 2 wire format.
+    private static final String UNSIGNED = "80" + "00"            // type, version
+            + "03"                                                // attribute count
+            + "20" + "59d2cef5a70f591516cb5888de225d9b4e8edc5e"   // Script: 20 bytes
+            + "81" + "10" + "68747470733a2f2f6e656f2e6f72672f"    // DescriptionUrl: length byte, "https://neo.org/"
+            + "f0" + "0c" + "4e454f207472616e73666572"            // Remark: var bytes, "NEO transfer"
+            + "01"                                                // input count
+            + "30a85ceb47b78759f741658f59fa5de9aa02027713d6e24aa2c90c5cfc650fb8" + "0100"
+            + "01"                                                // output count
+            + "9b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc5" + "00e1f50500000000"
+            + "6bc68ea188bf198f4a4dd8aedc0ffd0f28677fad";
+    // Double SHA-256 of UNSIGNED, byte reversed as explorers show it. Computed independently of this code.
+    private static final String TXID = "b4fb4360825f57c4adaf4de510b4096edd9fe83b07de8c25c077fd1400896600";
+
+    private static Attribute attribute(byte usage, byte[] data) {
+        Attribute attribute = new Attribute();
+        attribute.setUsage(usage);
+        attribute.setData(data);
+        return attribute;
+    }
+
+    private static byte[] filled(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+            data[i] = (byte) (seed + i * 7);
+        return data;
+    }
+
+    private static Transaction sample() {
+        Transaction tx = new Transaction();
+        tx.setTxtype(TransactionType.ContractTransaction);
+        tx.setVersion((byte) 0);
+
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        byte[] script = Utils.hexStringToBytes("59d2cef5a70f591516cb5888de225d9b4e8edc5e");
+        attributes.add(attribute(AttributeType.Script, script));
+        attributes.add(attribute(AttributeType.DescriptionUrl, "https://neo.org/".getBytes()));
+        attributes.add(attribute(AttributeType.Remark, "NEO transfer".getBytes()));
+        tx.setAttributes(attributes);
+
+        TransactionInput input = new TransactionInput();
+        input.setHash(UInt256.fromBytes(Utils.hexStringToBytes(
+                "30a85ceb47b78759f741658f59fa5de9aa02027713d6e24aa2c90c5cfc650fb8")));
+        input.setIndex((short) 1);
+        tx.setInputs(new ArrayList<TransactionInput>(Arrays.asList(input)));
+
+        TransactionOutput output = new TransactionOutput();
+        output.setAssetId(UInt256.fromBytes(Utils.hexStringToBytes(
+                "9b7cffdaa674beae0f930ebe6085af9093e5fe56b34a5c220ccdcf6efc336fc5")));
+        Fixed8 value = new Fixed8();
+        value.setValue(Fixed8.D);
+        output.setValue(value);
+        output.setToAddress(UInt160.fromBytes(Utils.hexStringToBytes("6bc68ea188bf198f4a4dd8aedc0ffd0f28677fad")));
+        tx.setOutputs(new ArrayList<TransactionOutput>(Arrays.asList(output)));
+        return tx;
+    }
+
+    private static void assertSameTransaction(Transaction expected, Transaction actual) {
+        assertEquals(expected.getTxtype(), actual.getTxtype());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getAttributes().size(), actual.getAttributes().size());
+        for (int i = 0; i < expected.getAttributes().size(); i++) {
+            Attribute a = expected.getAttributes().get(i), b = actual.getAttributes().get(i);
+            assertEquals("usage " + i, a.getUsage(), b.getUsage());
+            assertArrayEquals("data " + i, a.getData(), b.getData());
+        }
+        assertEquals(expected.getInputs(), actual.getInputs());
+        assertEquals(expected.getOutputs().size(), actual.getOutputs().size());
+        for (int i = 0; i < expected.getOutputs().size(); i++) {
+            TransactionOutput a = expected.getOutputs().get(i), b = actual.getOutputs().get(i);
+            assertEquals(a.getAssetId(), b.getAssetId());
+            assertEquals(a.getValue().getValue(), b.getValue().getValue());
+            assertEquals(a.getToAddress(), b.getToAddress());
+        }
+        assertEquals(expected.getWitnesses().size(), actual.getWitnesses().size());
+        for (int i = 0; i < expected.getWitnesses().size(); i++) {
+            Witness a = expected.getWitnesses().get(i), b = actual.getWitnesses().get(i);
+            assertArrayEquals(a.getInvocationScript(), b.getInvocationScript());
+            assertArrayEquals(a.getVerificationScript(), b.getVerificationScript());
+        }
+    }
+
+    @Test
+    public void knownTxid() {
+        Transaction tx = sample();
+        assertEquals(UNSIGNED, Utils.bytesToHexString(tx.getMessage()));
+        assertEquals(UNSIGNED.length() / 2, tx.getUnsignedSize());
+        assertEquals(TXID, Utils.bytesToHexString(Utils.reverseBytes(tx.getHash())));
+        assertEquals(UNSIGNED + "00", Utils.bytesToHexString(tx.getRawData()));
+    }
+
+    @Test
+    public void parseKnownBytes() {
+        Transaction parsed = Transaction.parse(ByteBuffer.wrap(Utils.hexStringToBytes(UNSIGNED + "00")));
+        assertSameTransaction(sample(), parsed);
+        assertEquals(TXID, Utils.bytesToHexString(Utils.reverseBytes(parsed.getHash())));
+
+        Transaction deserialized = new Transaction();
+        deserialized.deserialize(new ByteArrayInputStream(Utils.hexStringToBytes(UNSIGNED)));
+        assertEquals(UNSIGNED, Utils.bytesToHexString(deserialized.getMessage()));
+    }
+
+    @Test
+    public void everyAttributeKind() {
+        Transaction tx = sample();
+        byte[] ecdh = filled(33, 5);
+        ecdh[0] = AttributeType.ECDH02;
+        byte[] ecdh3 = filled(33, 6);
+        ecdh3[0] = AttributeType.ECDH03;
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        attributes.add(attribute(AttributeType.ContractHash, filled(32, 1)));
+        attributes.add(attribute(AttributeType.ECDH02, ecdh));
+        attributes.add(attribute(AttributeType.ECDH03, ecdh3));
+        attributes.add(attribute(AttributeType.Script, filled(20, 2)));
+        attributes.add(attribute(AttributeType.Vote, filled(32, 3)));
+        attributes.add(attribute(AttributeType.DescriptionUrl, filled(255, 4)));
+        attributes.add(attribute(AttributeType.Description, filled(300, 8)));
+        attributes.add(attribute(AttributeType.Hash1, filled(32, 9)));
+        attributes.add(attribute(AttributeType.Hash15, filled(32, 10)));
+        attributes.add(attribute(AttributeType.Remark, new byte[0]));
+        attributes.add(attribute(AttributeType.Remark15, filled(70000, 11)));
+        tx.setAttributes(attributes);
+        tx.addWitnessScript(filled(35, 12), filled(66, 13));
+
+        byte[] raw = tx.getRawData();
+        assertEquals(tx.getSerializedSize(), raw.length);
+        Transaction parsed = Transaction.parse(ByteBuffer.wrap(raw));
+        assertSameTransaction(tx, parsed);
+        assertArrayEquals(raw, parsed.getRawData());
+        assertEquals(tx.getTxid(), parsed.getTxid());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(raw.length);
+        tx.serializeTo(direct);
+        direct.flip();
+        assertSameTransaction(tx, Transaction.parse(direct));
+    }
+
+    @Test
+    public void noInputsOrOutputs() {
+        Transaction tx = new Transaction();
+        tx.setTxtype(TransactionType.ContractTransaction);
+        assertEquals("8000" + "00" + "00" + "00", Utils.bytesToHexString(tx.getMessage()));
+        assertTrue(tx.getMessageHash() != null);
+
+        Transaction parsed = Transaction.parse(ByteBuffer.wrap(tx.getRawData()));
+        assertTrue(parsed.getAttributes().isEmpty());
+        assertTrue(parsed.getInputs().isEmpty());
+        assertTrue(parsed.getOutputs().isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package neo;
+
+import core.UInt160;
+import core.UInt256;
+import core.Utils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** Every {@link TransactionView} accessor against the matching field of the parsed {@link Transaction}. */
+public class TransactionViewTest {
+    // The parser samples, plus one with ECDH attributes, whose view data drops the prefix byte, and two witnesses.
+    private static List<byte[]> samples() {
+        List<byte[]> samples = TransactionParseTest.samples();
+        Transaction tx = Transaction.parse(ByteBuffer.wrap(Utils.hexStringToBytes(TransactionParseTest.INVOCATION)));
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (byte usage : new byte[]{AttributeType.ECDH02, AttributeType.ECDH03, AttributeType.Vote}) {
+            byte[] data = new byte[usage == AttributeType.Vote ? 32 : 33];
+            Arrays.fill(data, usage);
+            Attribute attribute = new Attribute();
+            attribute.setUsage(usage);
+            attribute.setData(data);
+            attributes.add(attribute);
+        }
+        tx.setAttributes(attributes);
+        tx.addWitnessScript(new byte[]{0x51}, new byte[0]);
+        samples.add(tx.getRawData());
+        return samples;
+    }
+
+    private static ByteBuffer direct(byte[] raw) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(raw.length);
+        buf.put(raw).flip();
+        return buf;
+    }
+
+    @Test
+    public void accessorsMatchTransaction() {
+        for (byte[] raw : samples()) {
+            Transaction tx = Transaction.parse(ByteBuffer.wrap(raw));
+            TransactionView[] views = {TransactionView.wrap(raw), TransactionView.wrap(direct(raw))};
+            for (TransactionView view : views) {
+                assertEquals(raw.length, view.size());
+                assertEquals(tx.getUnsignedSize(), view.getUnsignedSize());
+                assertEquals(tx.getTxtype(), view.getTxtype());
+                assertEquals(tx.getVersion(), view.getVersion());
+                assertEquals(tx.getMessageHash(), view.getMessageHash());
+                assertEquals(tx.getTxid(), view.getTxid());
+
+                assertEquals(tx.getAttributes().size(), view.attributeCount());
+                for (int i = 0; i < view.attributeCount(); i++) {
+                    Attribute attribute = tx.getAttributes().get(i);
+                    assertEquals(attribute.getUsage(), view.attributeUsage(i));
+                    byte[] expected = attribute.getData();
+                    if (attribute.getUsage() == AttributeType.ECDH02 || attribute.getUsage() == AttributeType.ECDH03)
+                        expected = Arrays.copyOfRange(expected, 1, expected.length);
+                    assertEquals(expected.length, view.attributeDataLength(i));
+                    byte[] data = new byte[expected.length + 1];
+                    view.attributeData(i, data, 1);
+                    assertArrayEquals(expected, Arrays.copyOfRange(data, 1, data.length));
+                }
+
+                assertEquals(tx.getInputs().size(), view.inputCount());
+                for (int i = 0; i < view.inputCount(); i++) {
+                    TransactionInput input = tx.getInputs().get(i);
+                    assertEquals(input.getHash(), view.inputHash(i));
+                    byte[] hash = new byte[UInt256.LENGTH];
+                    view.inputHash(i, hash, 0);
+                    assertArrayEquals(input.getHash().toByteArray(), hash);
+                    assertEquals(input.getIndex() & 0xFFFF, view.inputIndex(i));
+                }
+
+                assertEquals(tx.getOutputs().size(), view.outputCount());
+                for (int i = 0; i < view.outputCount(); i++) {
+                    TransactionOutput output = tx.getOutputs().get(i);
+                    assertEquals(output.getAssetId(), view.outputAssetId(i));
+                    byte[] assetId = new byte[UInt256.LENGTH];
+                    view.outputAssetId(i, assetId, 0);
+                    assertArrayEquals(output.getAssetId().toByteArray(), assetId);
+                    assertEquals(output.getValue().getValue(), view.outputValue(i));
+                    assertEquals(output.getToAddress(), view.outputScriptHash(i));
+                    byte[] scriptHash = new byte[UInt160.LENGTH];
+                    view.outputScriptHash(i, scriptHash, 0);
+                    assertArrayEquals(output.getToAddress().toByteArray(), scriptHash);
+                }
+
+                assertEquals(tx.getWitnesses().size(), view.witnessCount());
+                for (int i = 0; i < view.witnessCount(); i++) {
+                    Witness witness = tx.getWitnesses().get(i);
+                    assertArrayEquals(witness.getInvocationScript(), view.witnessInvocationScript(i));
+                    assertArrayEquals(witness.getVerificationScript(), view.witnessVerificationScript(i));
+                }
+
+                assertArrayEquals(raw, view.toTransaction().getRawData());
+            }
+        }
+    }
+
+    @Test
+    public void wrapAdvancesPastOneTransaction() {
+        List<byte[]> samples = samples();
+        ByteBuffer buf = ByteBuffer.allocateDirect(4 * 4096);
+        for (byte[] raw : samples)
+            buf.put(raw);
+        buf.flip();
+        for (byte[] raw : samples) {
+            int start = buf.position();
+            TransactionView view = TransactionView.wrap(buf);
+            assertEquals(start + raw.length, buf.position());
+            assertArrayEquals(raw, view.toTransaction().getRawData());
+        }
+    }
+
+    @Test
+    public void truncatedLeavesPosition() {
+        for (byte[] raw : samples()) {
+            for (int length = 0; length < raw.length; length++) {
+                ByteBuffer buf = ByteBuffer.wrap(raw, 0, length);
+                try {
+                    TransactionView.wrap(buf);
+                    fail("wrapped " + length + " of " + raw.length + " bytes");
+                } catch (IllegalArgumentException expected) {
+                    assertEquals(0, buf.position());
+                }
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outputIndexChecked() {
+        TransactionView view = TransactionView.wrap(Utils.hexStringToBytes(TransactionParseTest.CONTRACT));
+        view.outputValue(view.outputCount());
+    }
+}